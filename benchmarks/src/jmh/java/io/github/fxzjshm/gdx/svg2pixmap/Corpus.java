@@ -0,0 +1,69 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.XmlReader;
+
+import java.io.File;
+
+/**
+ * The bytesize-icons used by benchmarks, loaded once per JVM.
+ * The directory comes from system property svg2pixmap.icons, set by build.gradle.
+ */
+public class Corpus {
+    public static final String ICONS_PROPERTY = "svg2pixmap.icons";
+
+    static Array<String> files;
+    static Array<String> paths;
+
+    /**
+     * Start a headless application, so that Gdx.app and natives of Pixmap are ready.
+     */
+    public static synchronized void init() {
+        if (Gdx.app == null) {
+            HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+            config.renderInterval = -1; // no need to render anything
+            new HeadlessApplication(new ApplicationAdapter() {
+            }, config);
+        }
+        if (files != null) return;
+
+        String directory = System.getProperty(ICONS_PROPERTY, "../test-libgdx/assets/bytesize-icons/dist/icons");
+        FileHandle[] svgFiles = Gdx.files.absolute(new File(directory).getAbsolutePath()).list(".svg");
+        if (svgFiles.length == 0) {
+            throw new GdxRuntimeException("No icon found in " + directory + ", try `git submodule update --init`");
+        }
+        files = new Array<>(svgFiles.length);
+        paths = new Array<>();
+        XmlReader reader = new XmlReader();
+        for (FileHandle file : svgFiles) {
+            String content = file.readString("UTF-8");
+            files.add(content);
+            for (XmlReader.Element path : reader.parse(content).getChildrenByNameRecursively("path")) {
+                String d = path.getAttribute("d", null);
+                if (d != null) paths.add(d);
+            }
+        }
+    }
+
+    /**
+     * Content of every SVG file.
+     */
+    public static Array<String> files() {
+        init();
+        return files;
+    }
+
+    /**
+     * Property d of every {@code <path />}.
+     */
+    public static Array<String> paths() {
+        init();
+        return paths;
+    }
+}
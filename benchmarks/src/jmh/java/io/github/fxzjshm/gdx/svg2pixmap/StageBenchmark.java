@@ -0,0 +1,194 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every stage of rendering alone, over all paths of the corpus.
+ * The icons are 32 x 32, {@link #size} is the Pixmap they are drawn onto.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@SuppressWarnings("deprecation")
+public class StageBenchmark {
+    static final int ICON_SIZE = 32;
+    static final float STROKE_WIDTH = 2;
+
+    @Param({"32", "128", "512"})
+    public int size;
+
+    String[] paths;
+    SvgPath[] compiled;
+    /**
+     * Segments and cubic curves of every path, in pixels.
+     */
+    Vector2[][] curves;
+    boolean[][][] borders;
+    Pixmap pixmap;
+    FlattenCounter counter = new FlattenCounter();
+    float[] arcCurves = new float[ArcConverter.MAX_FLOATS];
+
+    /**
+     * Arcs like the ones in icons: rx, ry, rotation, large-arc-flag, sweep-flag, x, y, all from (16, 16).
+     */
+    static final float[][] ARCS = {
+            {14, 14, 0, 1, 1, 16, 2},
+            {14, 14, 0, 0, 0, 30, 16},
+            {4, 4, 0, 0, 1, 20, 16},
+            {8, 4, 30, 1, 0, 4, 20},
+            {2, 2, 0, 0, 1, 16, 20},
+    };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Array<String> corpus = Corpus.paths();
+        paths = corpus.toArray(String.class);
+        compiled = new SvgPath[paths.length];
+        for (int i = 0; i < paths.length; i++) compiled[i] = SvgPath.parse(paths[i]);
+
+        float scale = (float) size / ICON_SIZE;
+        Array<Vector2[]> all = new Array<>(Vector2[].class);
+        pixmap = new Pixmap(size, size, Pixmap.Format.RGBA8888);
+        borders = new boolean[compiled.length][][];
+        for (int p = 0; p < compiled.length; p++) {
+            SvgPath path = compiled[p];
+            Array<Vector2[]> pathCurves = new Array<>(Vector2[].class);
+            float[] coords = path.coords;
+            float lastX = 0, lastY = 0, startX = 0, startY = 0;
+            for (int i = 0, j = 0; i < path.verbCount; i++) {
+                switch (path.verbs[i]) {
+                    case SvgPath.MOVE:
+                        startX = lastX = coords[j++] * scale;
+                        startY = lastY = coords[j++] * scale;
+                        break;
+                    case SvgPath.LINE:
+                        pathCurves.add(new Vector2[]{new Vector2(lastX, lastY), new Vector2(lastX = coords[j++] * scale, lastY = coords[j++] * scale)});
+                        break;
+                    case SvgPath.CUBIC:
+                        pathCurves.add(new Vector2[]{new Vector2(lastX, lastY), new Vector2(coords[j] * scale, coords[j + 1] * scale),
+                                new Vector2(coords[j + 2] * scale, coords[j + 3] * scale), new Vector2(lastX = coords[j + 4] * scale, lastY = coords[j + 5] * scale)});
+                        j += 6;
+                        break;
+                    case SvgPath.CLOSE:
+                        pathCurves.add(new Vector2[]{new Vector2(lastX, lastY), new Vector2(startX, startY)});
+                        lastX = startX;
+                        lastY = startY;
+                        break;
+                }
+            }
+            all.addAll(pathCurves);
+
+            // what fillColor gets from curveTo when drawing a whole path
+            borders[p] = new boolean[size][size];
+            for (Vector2[] curve : pathCurves) H.curveTo(pixmap, curve, Color.BLACK, 0, borders[p]);
+        }
+        curves = all.toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pixmap.dispose();
+    }
+
+    @Benchmark
+    public void splitMixedTokens(Blackhole blackhole) {
+        for (String d : paths) blackhole.consume(H.splitMixedTokens(d));
+    }
+
+    @Benchmark
+    public void parsePath(Blackhole blackhole) {
+        for (String d : paths) blackhole.consume(SvgPath.parse(d));
+    }
+
+    @Benchmark
+    public void arcToBezier(Blackhole blackhole) {
+        for (float[] arc : ARCS) {
+            blackhole.consume(SvgArcToCubicBezier.arcToBezier(16, 16, arc[5], arc[6], arc[0], arc[1], arc[2], (int) arc[3], (int) arc[4]));
+        }
+    }
+
+    @Benchmark
+    public void arcConverter(Blackhole blackhole) {
+        for (float[] arc : ARCS) {
+            blackhole.consume(ArcConverter.toCubics(16, 16, arc[5], arc[6], arc[0], arc[1], arc[2], (int) arc[3], (int) arc[4], arcCurves, 0));
+        }
+        blackhole.consume(arcCurves);
+    }
+
+    @Benchmark
+    public int flatten() {
+        counter.count = 0;
+        for (Vector2[] curve : curves) {
+            if (curve.length == 4) {
+                Flattener.cubicTo(curve[0].x, curve[0].y, curve[1].x, curve[1].y, curve[2].x, curve[2].y, curve[3].x, curve[3].y, counter);
+            }
+        }
+        return counter.count;
+    }
+
+    @Benchmark
+    public void curveTo() {
+        int strokeRadius = Math.max(1, Math.round(STROKE_WIDTH * size / ICON_SIZE / 2));
+        for (Vector2[] curve : curves) H.curveTo(pixmap, curve, Color.BLACK, strokeRadius, null);
+    }
+
+    @Benchmark
+    public void fillColor() {
+        for (boolean[][] border : borders) H.fillColor(pixmap, border, Color.BLACK);
+    }
+
+    @Benchmark
+    public void rasterizeFill() {
+        float scale = (float) size / ICON_SIZE;
+        for (SvgPath path : compiled) {
+            Svg2Pixmap.drawPath(path, 0, 0, scale, scale, Color.BLACK, ScanlineRasterizer.FillRule.NONZERO, null, 0, pixmap);
+        }
+    }
+
+    @Benchmark
+    public void rasterizeStroke() {
+        float scale = (float) size / ICON_SIZE;
+        for (SvgPath path : compiled) {
+            Svg2Pixmap.drawPath(path, 0, 0, scale, scale, null, ScanlineRasterizer.FillRule.NONZERO, Color.BLACK, STROKE_WIDTH,
+                    Stroker.LineJoin.ROUND, Stroker.LineCap.ROUND, 4, pixmap);
+        }
+    }
+
+    @Benchmark
+    public void path2Pixmap() {
+        for (String d : paths) Svg2Pixmap.path2Pixmap(ICON_SIZE, ICON_SIZE, d, Color.CLEAR, Color.BLACK, STROKE_WIDTH, pixmap);
+    }
+
+    /**
+     * Parse XML, resolve attributes and compile the shapes, without drawing.
+     */
+    @Benchmark
+    public void resolveDocument(Blackhole blackhole) {
+        for (String file : Corpus.files()) blackhole.consume(SvgDocument.parse(file));
+    }
+
+    static class FlattenCounter implements Flattener.ISegmentConsumer {
+        int count;
+
+        @Override
+        public void lineTo(float x, float y) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render the whole corpus end to end, once per operation.
+ * generateScale only matters to {@link Svg2Pixmap.AntiAliasing#SUPER_SAMPLING}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class Svg2PixmapBenchmark {
+    @Param({"32", "128", "512"})
+    public int size;
+
+    @Param({"1", "2", "4"})
+    public int generateScale;
+
+    @Param({"SUPER_SAMPLING", "COVERAGE"})
+    public Svg2Pixmap.AntiAliasing antiAliasing;
+
+    String[] files;
+    SvgDocument[] documents;
+
+    int oldGenerateScale;
+    Svg2Pixmap.AntiAliasing oldAntiAliasing;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        files = Corpus.files().toArray(String.class);
+        documents = new SvgDocument[files.length];
+        for (int i = 0; i < files.length; i++) documents[i] = SvgDocument.parse(files[i]);
+
+        oldGenerateScale = Svg2Pixmap.generateScale;
+        oldAntiAliasing = Svg2Pixmap.antiAliasing;
+        Svg2Pixmap.generateScale = generateScale;
+        Svg2Pixmap.antiAliasing = antiAliasing;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Svg2Pixmap.generateScale = oldGenerateScale;
+        Svg2Pixmap.antiAliasing = oldAntiAliasing;
+    }
+
+    /**
+     * From file content to Pixmap.
+     */
+    @Benchmark
+    public int svg2Pixmap() {
+        int pixels = 0;
+        for (String file : files) {
+            Pixmap pixmap = Svg2Pixmap.svg2Pixmap(file, size, size);
+            pixels += pixmap.getPixel(size / 2, size / 2);
+            pixmap.dispose();
+        }
+        return pixels;
+    }
+
+    /**
+     * From an already parsed document to Pixmap.
+     */
+    @Benchmark
+    public int render() {
+        int pixels = 0;
+        for (SvgDocument document : documents) {
+            Pixmap pixmap = document.render(size, size);
+            pixels += pixmap.getPixel(size / 2, size / 2);
+            pixmap.dispose();
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Null;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Renders a document as a coverage mask into a {@link Pixmap.Format#Alpha} Pixmap, a quarter of the memory of RGBA8888,
+ * for single-color icons tinted when drawn, e.g. by the color of a SpriteBatch.
+ * <p>
+ * Colors of fills and strokes are ignored, only how much of a pixel they cover counts, times their opacity.
+ * Overlapping shapes add up like source-over blending of alpha alone. Always anti-aliased with coverage,
+ * whatever {@link Svg2Pixmap#antiAliasing} is.
+ */
+public class AlphaMask {
+    /**
+     * Render the mask of document into a new width x height Pixmap of {@link Pixmap.Format#Alpha}.
+     */
+    public static Pixmap generate(SvgDocument document, int width, int height) {
+        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.Alpha);
+        Svg2Pixmap.IRenderListener listener = Svg2Pixmap.renderListener;
+        if (listener != null) listener.onAllocated(PixmapCache.sizeOf(pixmap));
+        generate(document, pixmap, 0, 0, width, height);
+        return pixmap;
+    }
+
+    /**
+     * Render the mask of document into the region of pixmap, mapping the viewBox onto it.
+     * Best with a Pixmap of {@link Pixmap.Format#Alpha}, other formats get white of the mask's alpha.
+     * Large regions are rendered by tiles as {@link SvgDocument#draw(Pixmap, int, int, int, int)} does, small ones shape by shape.
+     */
+    public static void generate(SvgDocument document, Pixmap pixmap, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        float scaleX = width / document.viewBoxWidth, scaleY = height / document.viewBoxHeight;
+        float originX = document.viewBoxX - x / scaleX, originY = document.viewBoxY - y / scaleY;
+        if (TileRenderer.shouldTile(width, height)) {
+            generateTiled(document, pixmap, originX, originY, scaleX, scaleY, x, y, width, height);
+            return;
+        }
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            for (SvgDocument.Shape shape : document.shapes) {
+                Svg2Pixmap.drawPath(shape.path, originX, originY, scaleX, scaleY, mask(shape.fill), shape.fillRule,
+                        mask(shape.stroke), shape.strokeWidth, shape.lineJoin, shape.lineCap, shape.miterLimit,
+                        pixmap, x, y, width, height, arena, true);
+            }
+        } finally {
+            arena.release();
+        }
+    }
+
+    /**
+     * Flatten every shape first, then fill them tile by tile in parallel. Same pixels as drawing shape by shape.
+     */
+    static void generateTiled(SvgDocument document, Pixmap pixmap, float originX, float originY, float scaleX, float scaleY,
+                              int x, int y, int width, int height) {
+        Svg2Pixmap.IRenderListener listener = Svg2Pixmap.renderListener;
+        long time = listener == null ? 0 : TimeUtils.nanoTime();
+
+        TileRenderer renderer = new TileRenderer();
+        for (SvgDocument.Shape shape : document.shapes) {
+            renderer.add(shape.path, originX, originY, scaleX, scaleY, mask(shape.fill), shape.fillRule,
+                    mask(shape.stroke), shape.strokeWidth, shape.lineJoin, shape.lineCap, shape.miterLimit);
+        }
+        if (listener != null) time = Svg2Pixmap.stage(listener, Svg2Pixmap.IRenderListener.Stage.FLATTEN, time, renderer.edgeCount);
+
+        renderer.render(pixmap, x, y, width, height, true);
+        if (listener != null) Svg2Pixmap.stage(listener, Svg2Pixmap.IRenderListener.Stage.FILL, time, renderer.edgeCount);
+    }
+
+    /**
+     * White of every alpha a paint can have in RGBA8888, shared by all masks.
+     */
+    static final Color[] WHITES = new Color[256];
+
+    static {
+        for (int a = 0; a < 256; a++) WHITES[a] = new Color(0xffffff00 | a);
+    }
+
+    /**
+     * @return white of the opacity of paint, so that only its alpha reaches the Pixmap. Must not be modified.
+     */
+    @Null
+    static Color mask(@Null Color paint) {
+        if (paint == null) return null;
+        return WHITES[(int) (paint.a * 255)]; // same alpha as Color.rgba8888(paint)
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+/**
+ * Turns an elliptical arc of SVG into cubic Bezier curves, written straight into a float array.
+ * Same math and same points as {@link SvgArcToCubicBezier}, which is kept as the reference,
+ * but without any stream, list, boxed number or object per curve.
+ */
+public class ArcConverter {
+    /**
+     * An arc becomes at most 4 curves, of 6 floats each.
+     */
+    public static final int MAX_FLOATS = 4 * 6;
+
+    static final double TAU = Math.PI * 2;
+
+    /**
+     * Convert the arc from (px, py) to (x, y), as the command A of a path.
+     * Every curve is written as x1, y1, x2, y2, x, y into out from offset; the start point is not written.
+     *
+     * @param out at least offset + {@link #MAX_FLOATS} long
+     * @return how many curves are written, 0 if the arc is nothing (e.g. a radius is 0), where a line should be drawn instead.
+     */
+    public static int toCubics(float px, float py, float x, float y, float rx, float ry, float xAxisRotation,
+                               int largeArcFlag, int sweepFlag, float[] out, int offset) {
+        if (rx == 0 || ry == 0) return 0;
+
+        double sinphi = Math.sin(xAxisRotation * TAU / 360), cosphi = Math.cos(xAxisRotation * TAU / 360);
+        // in double like the reference, (px + x) / 2 in float would move the center
+        double dx = (double) px - x, dy = (double) py - y;
+        // start point in the frame centered at the middle of the chord, rotated with the ellipse
+        double pxp = cosphi * dx / 2 + sinphi * dy / 2;
+        double pyp = -sinphi * dx / 2 + cosphi * dy / 2;
+        if (pxp == 0 && pyp == 0) return 0;
+
+        double rxAbs = Math.abs(rx), ryAbs = Math.abs(ry);
+        // radii too small to reach are scaled up, as SVG says
+        double lambda = (pxp * pxp) / (rxAbs * rxAbs) + (pyp * pyp) / (ryAbs * ryAbs);
+        if (lambda > 1) {
+            rxAbs *= Math.sqrt(lambda);
+            ryAbs *= Math.sqrt(lambda);
+        }
+
+        // center, see https://www.w3.org/TR/SVG11/implnote.html#ArcConversionEndpointToCenter
+        double rxsq = rxAbs * rxAbs, rysq = ryAbs * ryAbs, pxpsq = pxp * pxp, pypsq = pyp * pyp;
+        double radicant = Math.max(0, rxsq * rysq - rxsq * pypsq - rysq * pxpsq);
+        radicant /= rxsq * pypsq + rysq * pxpsq;
+        radicant = Math.sqrt(radicant) * (largeArcFlag == sweepFlag ? -1 : 1);
+        double centerxp = radicant * rxAbs / ryAbs * pyp, centeryp = radicant * -ryAbs / rxAbs * pxp;
+        double centerx = cosphi * centerxp - sinphi * centeryp + ((double) px + x) / 2;
+        double centery = sinphi * centerxp + cosphi * centeryp + ((double) py + y) / 2;
+
+        double vx1 = (pxp - centerxp) / rxAbs, vy1 = (pyp - centeryp) / ryAbs;
+        double vx2 = (-pxp - centerxp) / rxAbs, vy2 = (-pyp - centeryp) / ryAbs;
+        double ang1 = vectorAngle(1, 0, vx1, vy1), ang2 = vectorAngle(vx1, vy1, vx2, vy2);
+        if (sweepFlag == 0 && ang2 > 0) ang2 -= TAU;
+        if (sweepFlag == 1 && ang2 < 0) ang2 += TAU;
+
+        // at most 90 degrees per curve, a ratio just above 1 is not worth another one
+        double ratio = Math.abs(ang2) / (TAU / 4);
+        if (Math.abs(1.0 - ratio) < 0.0000001) ratio = 1.0;
+        int segments = (int) Math.max(Math.ceil(ratio), 1);
+        ang2 /= segments;
+
+        for (int i = 0; i < segments; i++, offset += 6) {
+            // the unit arc from ang1 to ang1 + ang2, then mapped onto the ellipse
+            double a = ang2 == 1.5707963267948966 ? 0.551915024494
+                    : ang2 == -1.5707963267948966 ? -0.551915024494
+                    : 4.0 / 3 * Math.tan(ang2 / 4);
+            double x1 = Math.cos(ang1), y1 = Math.sin(ang1);
+            double x2 = Math.cos(ang1 + ang2), y2 = Math.sin(ang1 + ang2);
+            map(out, offset, (float) (x1 - y1 * a), (float) (y1 + x1 * a), rxAbs, ryAbs, cosphi, sinphi, centerx, centery);
+            map(out, offset + 2, (float) (x2 + y2 * a), (float) (y2 - x2 * a), rxAbs, ryAbs, cosphi, sinphi, centerx, centery);
+            map(out, offset + 4, (float) x2, (float) y2, rxAbs, ryAbs, cosphi, sinphi, centerx, centery);
+            ang1 += ang2;
+        }
+        return segments;
+    }
+
+    /**
+     * Map a point of the unit circle onto the ellipse, into out[index] and out[index + 1].
+     */
+    static void map(float[] out, int index, float ux, float uy, double rx, double ry, double cosphi, double sinphi,
+                    double centerx, double centery) {
+        double x = ux * rx, y = uy * ry;
+        out[index] = (float) (cosphi * x - sinphi * y + centerx);
+        out[index + 1] = (float) (sinphi * x + cosphi * y + centery);
+    }
+
+    static double vectorAngle(double ux, double uy, double vx, double vy) {
+        double sign = (ux * vy - uy * vx < 0) ? -1 : 1;
+        double dot = Math.max(-1, Math.min(1, ux * vx + uy * vy));
+        return sign * Math.acos(dot);
+    }
+}
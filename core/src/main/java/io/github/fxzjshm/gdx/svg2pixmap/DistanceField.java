@@ -0,0 +1,240 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Generates a signed distance field of a document on the CPU: a Pixmap rendered once, which a distance field shader
+ * (e.g. the one of libGDX's {@code DistanceFieldFont}) can scale up and down with sharp edges, instead of rendering again for every size.
+ * <p>
+ * Every pixel is white, its alpha is the distance from its center to the nearest outline, mapped so that
+ * 0.5 is on the outline, more is inside, and {@link #spread} pixels away on either side is 1 or 0.
+ * Colors are not kept, every painted fill and stroke counts as inside.
+ * <p>
+ * Shapes are flattened like they are drawn. Inside or not is decided by the aliased scanline fill,
+ * and only outlines within {@link #spread} of a pixel can matter, so they are binned into a grid and a pixel
+ * only looks at the ones in its cell.
+ */
+public class DistanceField {
+    /**
+     * How far from outlines distances are kept, in pixels of the field. Larger allows more scaling and effects such as glow.
+     */
+    public static float spread = 4;
+
+    /**
+     * Size of a cell of the grid the outlines are binned into, in pixels.
+     */
+    static final int CELL_SIZE = 8;
+
+    /**
+     * Generate the distance field of document into a new width x height Pixmap.
+     */
+    public static Pixmap generate(SvgDocument document, int width, int height) {
+        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        Svg2Pixmap.IRenderListener listener = Svg2Pixmap.renderListener;
+        if (listener != null) listener.onAllocated(PixmapCache.sizeOf(pixmap));
+        generate(document, pixmap, 0, 0, width, height);
+        return pixmap;
+    }
+
+    /**
+     * Generate the distance field of document into the region of pixmap, mapping the viewBox onto it.
+     * Pixels of the region are replaced, not blended.
+     * <p>
+     * Besides pixmap, this needs a float per pixel of the region for the field, and a RGBA8888 mask of the region
+     * kept in the {@link ScratchArena} of the thread, i.e. about 8 bytes per pixel, all of it at once.
+     * So a large field costs twice its own memory while generated, e.g. 32 MiB more for 2048 x 2048.
+     * The mask is dropped after if it is larger than {@link ScratchArena#maxBytes}.
+     */
+    public static void generate(SvgDocument document, Pixmap pixmap, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        float scaleX = width / document.viewBoxWidth, scaleY = height / document.viewBoxHeight;
+        // flatten into layers of fills and strokes like tiled rendering, keeping every segment of the outlines
+        TileRenderer layers = new TileRenderer() {
+            @Override
+            ScanlineRasterizer newLayer() {
+                return new Outline();
+            }
+        };
+        for (SvgDocument.Shape shape : document.shapes) {
+            layers.add(shape.path, document.viewBoxX, document.viewBoxY, scaleX, scaleY, shape.fill, shape.fillRule,
+                    shape.stroke, shape.strokeWidth, shape.lineJoin, shape.lineCap, shape.miterLimit);
+        }
+
+        float[] field = new float[width * height];
+        Arrays.fill(field, -spread);
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            Pixmap mask = arena.pixmap(width, height, Pixmap.Format.RGBA8888);
+            Grid grid = new Grid();
+            for (int i = 0; i < layers.layers.size; i++) {
+                merge((Outline) layers.layers.get(i), layers.fillRules.get(i), mask, field, width, height, arena, grid);
+            }
+        } finally {
+            arena.release();
+        }
+
+        Pixmap.Blending blending = pixmap.getBlending();
+        pixmap.setBlending(Pixmap.Blending.None);
+        float scale = 0.5f / spread;
+        int left = Math.max(0, x), right = Math.min(pixmap.getWidth(), x + width);
+        int top = Math.max(0, y), bottom = Math.min(pixmap.getHeight(), y + height);
+        for (int py = top; py < bottom; py++) {
+            for (int px = left; px < right; px++) {
+                float value = 0.5f + field[(py - y) * width + px - x] * scale;
+                int a = Math.max(0, Math.min(255, Math.round(value * 255)));
+                ScanlineRasterizer.blendPixel(pixmap, px, py, 0xffffff00 | a);
+            }
+        }
+        pixmap.setBlending(blending);
+    }
+
+    /**
+     * Take the union of field and the signed distance of one layer, i.e. the larger of them,
+     * at pixels within {@link #spread} of the layer. Farther pixels are beyond the spread anyway.
+     */
+    static void merge(Outline outline, ScanlineRasterizer.FillRule fillRule, Pixmap mask, float[] field, int width, int height,
+                      ScratchArena arena, Grid grid) {
+        float[] segments = outline.segments;
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY,
+                maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < outline.segmentCount * 4; i += 2) {
+            minX = Math.min(minX, segments[i]);
+            maxX = Math.max(maxX, segments[i]);
+            minY = Math.min(minY, segments[i + 1]);
+            maxY = Math.max(maxY, segments[i + 1]);
+        }
+        float limit = spread;
+        int left = Math.max(0, (int) Math.floor(minX - limit)), right = Math.min(width, (int) Math.ceil(maxX + limit) + 1);
+        int top = Math.max(0, (int) Math.floor(minY - limit)), bottom = Math.min(height, (int) Math.ceil(maxY + limit) + 1);
+        if (left >= right || top >= bottom) return;
+
+        // pixels inside, painted opaque on the mask, which is cleared again while reading it
+        outline.fill(mask, Color.WHITE, fillRule, left, top, right, bottom, arena);
+        ByteBuffer pixels = mask.getPixels();
+        int stride = mask.getWidth();
+        boolean any = false;
+        for (int py = top; py < bottom && !any; py++) {
+            for (int px = left; px < right; px++) {
+                if (pixels.get((py * stride + px) * 4 + 3) != 0) {
+                    any = true;
+                    break;
+                }
+            }
+        }
+        // nothing is drawn for a shape without area, e.g. the fill of a line, so it should not leave an edge either
+        if (!any) return;
+
+        grid.build(outline, left, top, right, bottom, limit);
+        for (int py = top; py < bottom; py++) {
+            for (int px = left; px < right; px++) {
+                int index = (py * stride + px) * 4;
+                boolean inside = pixels.get(index + 3) != 0;
+                if (inside) pixels.putInt(index, 0);
+                float distance = grid.distance(px + 0.5f, py + 0.5f, limit);
+                float signed = inside ? distance : -distance;
+                int f = py * width + px;
+                if (signed > field[f]) field[f] = signed;
+            }
+        }
+    }
+
+    /**
+     * A layer which also keeps every segment of its outline, horizontal ones included, which filling does not need.
+     */
+    static class Outline extends ScanlineRasterizer {
+        /**
+         * 4 floats (x0, y0, x1, y1) per segment.
+         */
+        float[] segments = new float[64];
+        int segmentCount = 0;
+
+        Outline() {
+            super(null);
+        }
+
+        @Override
+        void addEdge(float x0, float y0, float x1, float y1) {
+            super.addEdge(x0, y0, x1, y1);
+            if (x0 == x1 && y0 == y1) return;
+            if (segmentCount * 4 + 4 > segments.length) segments = Arrays.copyOf(segments, segments.length * 2);
+            int i = segmentCount * 4;
+            segments[i] = x0;
+            segments[i + 1] = y0;
+            segments[i + 2] = x1;
+            segments[i + 3] = y1;
+            segmentCount++;
+        }
+    }
+
+    /**
+     * Segments of an outline binned into cells of {@link #CELL_SIZE} pixels. A segment is put into every cell
+     * its bounds, grown by the search limit, touch, so a cell holds every segment close enough to any point in it.
+     */
+    static class Grid {
+        int left, top, columns, rows;
+        /**
+         * Segments of cell c are items[cellStart[c]] to items[cellStart[c + 1] - 1].
+         */
+        int[] cellStart = new int[1], cursor = new int[1], items = new int[16];
+        float[] segments;
+
+        void build(Outline outline, int left, int top, int right, int bottom, float limit) {
+            this.left = left;
+            this.top = top;
+            this.segments = outline.segments;
+            columns = (right - left + CELL_SIZE - 1) / CELL_SIZE;
+            rows = (bottom - top + CELL_SIZE - 1) / CELL_SIZE;
+            int cells = columns * rows;
+            if (cellStart.length < cells + 1) {
+                cellStart = new int[cells + 1];
+                cursor = new int[cells + 1];
+            }
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+            // count, then place, so items of a cell are next to each other
+            for (int pass = 0; pass < 2; pass++) {
+                for (int s = 0; s < outline.segmentCount; s++) {
+                    int i = s * 4;
+                    float x0 = segments[i], y0 = segments[i + 1], x1 = segments[i + 2], y1 = segments[i + 3];
+                    int c0 = Math.max(0, (int) Math.floor((Math.min(x0, x1) - limit - left) / CELL_SIZE));
+                    int c1 = Math.min(columns - 1, (int) Math.floor((Math.max(x0, x1) + limit - left) / CELL_SIZE));
+                    int r0 = Math.max(0, (int) Math.floor((Math.min(y0, y1) - limit - top) / CELL_SIZE));
+                    int r1 = Math.min(rows - 1, (int) Math.floor((Math.max(y0, y1) + limit - top) / CELL_SIZE));
+                    for (int r = r0; r <= r1; r++) {
+                        for (int c = c0; c <= c1; c++) {
+                            int cell = r * columns + c;
+                            if (pass == 0) cellStart[cell + 1]++;
+                            else items[cursor[cell]++] = s;
+                        }
+                    }
+                }
+                if (pass == 0) {
+                    for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+                    if (items.length < cellStart[cells]) items = new int[cellStart[cells]];
+                    System.arraycopy(cellStart, 0, cursor, 0, cells);
+                }
+            }
+        }
+
+        /**
+         * @return distance from (x, y) to the nearest segment, or limit if none is nearer.
+         */
+        float distance(float x, float y, float limit) {
+            int cell = (int) ((y - top) / CELL_SIZE) * columns + (int) ((x - left) / CELL_SIZE);
+            float best = limit * limit;
+            for (int k = cellStart[cell], end = cellStart[cell + 1]; k < end; k++) {
+                int i = items[k] * 4;
+                float x0 = segments[i], y0 = segments[i + 1], dx = segments[i + 2] - x0, dy = segments[i + 3] - y0;
+                // nearest point of the segment, by projecting onto it
+                float t = ((x - x0) * dx + (y - y0) * dy) / (dx * dx + dy * dy);
+                t = Math.max(0, Math.min(1, t));
+                float ex = x0 + t * dx - x, ey = y0 + t * dy - y;
+                best = Math.min(best, ex * ex + ey * ey);
+            }
+            return (float) Math.sqrt(best);
+        }
+    }
+}
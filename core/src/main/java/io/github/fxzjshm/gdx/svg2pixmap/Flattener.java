@@ -0,0 +1,135 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Turns Bezier curves into line segments, as few as possible while staying within {@link Flattener#tolerance}.
+ * <p>
+ * The number of segments comes from Wang's formula: a Bezier curve of degree n, split into m pieces uniform in t,
+ * is within n(n-1)/8 * max|P[i] - 2P[i+1] + P[i+2]| / m^2 of its chords.
+ * So the cost is about the square root of the curvature, whatever the size of the bounding box is,
+ * and a straight curve is always one segment.
+ * Points are then computed by forward differencing, i.e. a few additions each.
+ */
+public class Flattener {
+    /**
+     * The max distance allowed between a curve and the segments approximating it, in pixels.
+     */
+    public static float tolerance = 0.25f;
+
+    /**
+     * Upper bound of segments per curve, in case of huge curves or a tiny tolerance.
+     */
+    public static int maxSegments = 1024;
+
+    /**
+     * Receives flattened points.
+     */
+    public interface ISegmentConsumer {
+        void lineTo(float x, float y);
+    }
+
+    /**
+     * Flatten a quadratic curve starting from (x0, y0). The start point itself is not passed to consumer.
+     */
+    public static void quadTo(float x0, float y0, float x1, float y1, float x, float y, ISegmentConsumer consumer) {
+        int n = segments(2, Math.max(Math.abs(x0 - 2 * x1 + x), Math.abs(y0 - 2 * y1 + y)));
+        if (n == 1) {
+            consumer.lineTo(x, y);
+            return;
+        }
+        // P(t) = a t^2 + b t + P0
+        float h = 1f / n;
+        float ax = x0 - 2 * x1 + x, ay = y0 - 2 * y1 + y;
+        float bx = 2 * (x1 - x0), by = 2 * (y1 - y0);
+        float d1x = ax * h * h + bx * h, d1y = ay * h * h + by * h;
+        float d2x = 2 * ax * h * h, d2y = 2 * ay * h * h;
+        float px = x0, py = y0;
+        for (int i = 1; i < n; i++) {
+            px += d1x;
+            py += d1y;
+            d1x += d2x;
+            d1y += d2y;
+            consumer.lineTo(px, py);
+        }
+        consumer.lineTo(x, y);
+    }
+
+    /**
+     * Flatten a cubic curve starting from (x0, y0). The start point itself is not passed to consumer.
+     */
+    public static void cubicTo(float x0, float y0, float x1, float y1, float x2, float y2, float x, float y, ISegmentConsumer consumer) {
+        float dd = Math.max(Math.max(Math.abs(x0 - 2 * x1 + x2), Math.abs(y0 - 2 * y1 + y2)),
+                Math.max(Math.abs(x1 - 2 * x2 + x), Math.abs(y1 - 2 * y2 + y)));
+        int n = segments(3, dd);
+        if (n == 1) {
+            consumer.lineTo(x, y);
+            return;
+        }
+        // P(t) = a t^3 + b t^2 + c t + P0
+        float h = 1f / n, h2 = h * h, h3 = h2 * h;
+        float ax = -x0 + 3 * (x1 - x2) + x, ay = -y0 + 3 * (y1 - y2) + y;
+        float bx = 3 * (x0 - 2 * x1 + x2), by = 3 * (y0 - 2 * y1 + y2);
+        float cx = 3 * (x1 - x0), cy = 3 * (y1 - y0);
+        float d1x = ax * h3 + bx * h2 + cx * h, d1y = ay * h3 + by * h2 + cy * h;
+        float d2x = 6 * ax * h3 + 2 * bx * h2, d2y = 6 * ay * h3 + 2 * by * h2;
+        float d3x = 6 * ax * h3, d3y = 6 * ay * h3;
+        float px = x0, py = y0;
+        for (int i = 1; i < n; i++) {
+            px += d1x;
+            py += d1y;
+            d1x += d2x;
+            d1y += d2y;
+            d2x += d3x;
+            d2y += d3y;
+            consumer.lineTo(px, py);
+        }
+        consumer.lineTo(x, y);
+    }
+
+    /**
+     * Flatten a curve of any degree given by its control points. Slower, used by {@link H#curveTo}.
+     *
+     * @return points on the curve, including both ends, as x0, y0, x1, y1...
+     */
+    public static float[] flatten(Vector2[] points) {
+        int degree = points.length - 1;
+        float dd = 0;
+        for (int i = 0; i + 2 < points.length; i++) {
+            dd = Math.max(dd, Math.abs(points[i].x - 2 * points[i + 1].x + points[i + 2].x));
+            dd = Math.max(dd, Math.abs(points[i].y - 2 * points[i + 1].y + points[i + 2].y));
+        }
+        int n = degree <= 1 ? 1 : segments(degree, dd);
+        float[] result = new float[(n + 1) * 2];
+        float[] x = new float[points.length], y = new float[points.length];
+        for (int s = 0; s <= n; s++) {
+            // de Casteljau
+            float t = (float) s / n;
+            for (int i = 0; i <= degree; i++) {
+                x[i] = points[i].x;
+                y[i] = points[i].y;
+            }
+            for (int k = degree; k > 0; k--) {
+                for (int i = 0; i < k; i++) {
+                    x[i] += (x[i + 1] - x[i]) * t;
+                    y[i] += (y[i + 1] - y[i]) * t;
+                }
+            }
+            result[2 * s] = x[0];
+            result[2 * s + 1] = y[0];
+        }
+        return result;
+    }
+
+    /**
+     * @param degree           of the curve
+     * @param secondDifference max |P[i] - 2P[i+1] + P[i+2]| of the control points, per axis
+     * @return how many segments to split the curve into, by Wang's formula.
+     */
+    static int segments(int degree, float secondDifference) {
+        // secondDifference is per axis, sqrt(2) covers the diagonal
+        double error = degree * (degree - 1) / 8.0 * secondDifference * 1.4142135f;
+        int n = (int) Math.ceil(Math.sqrt(error / Math.max(tolerance, 1e-3f)));
+        return Math.max(1, Math.min(maxSegments, n));
+    }
+}
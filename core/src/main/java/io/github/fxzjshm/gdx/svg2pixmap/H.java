@@ -2,18 +2,19 @@ package io.github.fxzjshm.gdx.svg2pixmap;
 
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.math.GridPoint2;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Null;
-import com.badlogic.gdx.utils.Queue;
+import com.badlogic.gdx.utils.ObjectIntMap;
 import com.badlogic.gdx.utils.StringBuilder;
 import com.badlogic.gdx.utils.XmlReader;
 import com.badlogic.gdx.utils.async.AsyncExecutor;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static io.github.fxzjshm.gdx.svg2pixmap.Svg2Pixmap.defaultColor;
 
@@ -24,6 +25,9 @@ public class H {
 
     public static LinkedHashMap<String, Color> colorMap = new LinkedHashMap<>(150);
 
+    /**
+     * The default pool behind {@link Parallel#executor}.
+     */
     static AsyncExecutor asyncExecutor = new AsyncExecutor(Runtime.getRuntime().availableProcessors());
 
     static {
@@ -178,6 +182,15 @@ public class H {
         colorMap.put("yellowgreen", color8BitsToFloat(154, 205, 50));
     }
 
+    /**
+     * {@link #colorMap} packed as RGBA8888, see {@link #parseColor(String, int)}.
+     */
+    public static ObjectIntMap<String> colorInts = new ObjectIntMap<>(colorMap.size());
+
+    static {
+        for (Map.Entry<String, Color> entry : colorMap.entrySet()) colorInts.put(entry.getKey(), Color.rgba8888(entry.getValue()));
+    }
+
     /**
      * Split mixed tokens.
      */
@@ -252,7 +265,7 @@ public class H {
     }
 
     /**
-     * Draw a Bezier curve.
+     * Draw a Bezier curve, flattened by {@link Flattener}.
      * See https://en.wikipedia.org/wiki/B%C3%A9zier_curve
      *
      * @param pixmap you want to draw on
@@ -263,62 +276,76 @@ public class H {
      * @see H#drawCurve(Pixmap, Vector2[], Color, int, boolean[][])
      */
     public static void curveTo(Pixmap pixmap, Vector2[] points, Color stroke, int strokeWidth, @Null boolean[][] border) {
-        int n = points.length - 1;
-        int w = pixmap.getWidth(), h = pixmap.getHeight();
-        double minx = w, maxx = 0, miny = h, maxy = 0;
-        for (Vector2 p : points) {
-            minx = Math.min(p.x, minx);
-            maxx = Math.max(p.x, maxx);
-            miny = Math.min(p.y, miny);
-            maxy = Math.max(p.y, maxy);
-        }
-        int dx = Math.max(1, (int) Math.round(maxx - minx));
-        int dy = Math.max(1, (int) Math.round(maxy - miny));
-        int pointN = dx * dy;
-        for (double t = 0; t <= 1; t += 1.0 / pointN) {
-            double x = 0, y = 0;
-            for (int i = 0; i <= n; i++) {
-                double k = c[n][i] * Math.pow(1 - t, n - i) * Math.pow(t, i);
-                x += k * points[i].x;
-                y += k * points[i].y;
-            }
-            int p = (int) Math.round(x), q = (int) Math.round(y);
-            pixmap.setColor(stroke);
-            // pixmap.fillCircle((int) Math.round(x), (int) Math.round(y), strokeWidth); // this performs worse?
-            for (int i = 0; i < strokeWidth; i++) {
-                pixmap.drawCircle(p, q, i);
-            }
-            p = Math.max(0, p);
-            p = Math.min(w - 1, p);
-            q = Math.max(0, q);
-            q = Math.min(h - 1, q);
-            if (border != null) {
-                border[p][q] = true;
+        curveTo(pixmap, 0, 0, points, stroke, strokeWidth, border);
+    }
+
+    /**
+     * Same as above, but a point (x, y) is drawn at (x - offsetX, y - offsetY) of pixmap, which may be just a part of the canvas.
+     * border is still marked at (x, y), clamped to its size.
+     */
+    static void curveTo(Pixmap pixmap, int offsetX, int offsetY, Vector2[] points, Color stroke, int strokeWidth, @Null boolean[][] border) {
+        int w = border == null ? 0 : border.length, h = border == null ? 0 : border[0].length;
+        pixmap.setColor(stroke);
+        // Stamp about once per pixel along the flattened curve, so cost is linear in its length.
+        float[] flattened = Flattener.flatten(points);
+        for (int s = 0; s + 2 < flattened.length; s += 2) {
+            float x0 = flattened[s], y0 = flattened[s + 1], x1 = flattened[s + 2], y1 = flattened[s + 3];
+            int steps = Math.max(1, (int) Math.ceil(Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0))));
+            for (int k = s == 0 ? 0 : 1; k <= steps; k++) {
+                float t = (float) k / steps;
+                int p = Math.round(x0 + (x1 - x0) * t), q = Math.round(y0 + (y1 - y0) * t);
+                // pixmap.fillCircle(p, q, strokeWidth); // this performs worse?
+                for (int i = 0; i < strokeWidth; i++) {
+                    pixmap.drawCircle(p - offsetX, q - offsetY, i);
+                }
+                if (border != null) {
+                    border[Math.min(w - 1, Math.max(0, p))][Math.min(h - 1, Math.max(0, q))] = true;
+                }
             }
         }
     }
 
     /**
-     * @param border marks {@code true} if the position was drawn something on
+     * @param border marks {@code true} if the position was drawn something on, or null if not needed
      * @see H#curveTo(Pixmap, Vector2[], Color, int, boolean[][])
+     * @deprecated costs O(width * height) per curve, see {@link Stroker}
      */
-    public static void drawCurve(Pixmap pixmap, Vector2[] points, Color stroke, int strokeWidth, boolean[][] border) {
-        if (strokeWidth == 0) {
+    @Deprecated
+    public static void drawCurve(Pixmap pixmap, Vector2[] points, Color stroke, int strokeWidth, @Null boolean[][] border) {
+        if (strokeWidth == 0 || border == null) {
             curveTo(pixmap, points, stroke, strokeWidth, border);
         } else {
             int w = pixmap.getWidth(), h = pixmap.getHeight(), color;
-            Pixmap tmp = new Pixmap(w, h, pixmap.getFormat());
-            curveTo(tmp, points, stroke, strokeWidth, border);
-            for (int i = 0; i < w; i++) {
-                for (int j = 0; j < h; j++) {
-                    color = tmp.getPixel(i, j);
-                    if (color != Color.rgba8888(Color.CLEAR)) {
-                        border[i][j] = true;
+            // The curve stays in the hull of its control points, so only that area (plus the stroke) is drawn and copied.
+            float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+            for (Vector2 point : points) {
+                minX = Math.min(minX, point.x);
+                minY = Math.min(minY, point.y);
+                maxX = Math.max(maxX, point.x);
+                maxY = Math.max(maxY, point.y);
+            }
+            int left = Math.max(0, (int) Math.floor(minX) - strokeWidth - 1), top = Math.max(0, (int) Math.floor(minY) - strokeWidth - 1);
+            int right = Math.min(w, (int) Math.ceil(maxX) + strokeWidth + 2), bottom = Math.min(h, (int) Math.ceil(maxY) + strokeWidth + 2);
+            if (left >= right || top >= bottom) {
+                curveTo(pixmap, points, stroke, strokeWidth, border); // out of the pixmap, only marks border
+                return;
+            }
+            ScratchArena arena = ScratchArena.acquire();
+            try {
+                Pixmap tmp = arena.pixmap(right - left, bottom - top, pixmap.getFormat());
+                curveTo(tmp, left, top, points, stroke, strokeWidth, border);
+                for (int i = left; i < right; i++) {
+                    for (int j = top; j < bottom; j++) {
+                        color = tmp.getPixel(i - left, j - top);
+                        if (color != Color.rgba8888(Color.CLEAR)) {
+                            border[i][j] = true;
+                        }
+                        pixmap.drawPixel(i, j, color);
                     }
-                    pixmap.drawPixel(i, j, color);
                 }
+            } finally {
+                arena.release();
             }
-            tmp.dispose();
         }
     }
 
@@ -344,64 +371,123 @@ public class H {
     public static int[] dx = {1, 0, -1, 0},
             dy = {0, 1, 0, -1};
 
+    /**
+     * Flood fill areas enclosed by border.
+     * Only the bounding box of border is searched: whatever is not border there but touches its side
+     * is connected to the edge of the pixmap, so it is outside.
+     *
+     * @deprecated visits every pixel of the bounding box and cannot tell fill-rules, use {@link ScanlineRasterizer} instead.
+     */
+    @Deprecated
     public static void fillColor(Pixmap pixmap, boolean[][] border, Color fill) {
         if (fill == null || fill.equals(Color.CLEAR)) return;
-        int w = pixmap.getWidth(), h = pixmap.getHeight();
-        Queue<GridPoint2> q = new Queue<>();
-        Array<GridPoint2> list = new Array<>(w * h);
-
-        boolean[][] vis = new boolean[border.length][border[0].length];
-        GridPoint2 p;
-        int color = Color.rgba8888(fill);
-
-        int x, y;
-
+        int w = Math.min(pixmap.getWidth(), border.length), h = Math.min(pixmap.getHeight(), border[0].length);
+        int left = w, top = h, right = -1, bottom = -1;
         for (int i = 0; i < w; i++) {
             for (int j = 0; j < h; j++) {
-                if (vis[i][j] || border[i][j]) continue;
-                boolean isOverflow = false;
-                q.addLast(new GridPoint2(i, j));
-                while (q.notEmpty()) {
-                    p = q.removeFirst();
-                    if (vis[p.x][p.y]) {
-                        continue;
-                    }
-                    vis[p.x][p.y] = true;
-                    if (border[p.x][p.y]) {
-                        continue;
-                    }
+                if (border[i][j]) {
+                    left = Math.min(left, i);
+                    top = Math.min(top, j);
+                    right = Math.max(right, i);
+                    bottom = Math.max(bottom, j);
+                }
+            }
+        }
+        if (right - left < 2 || bottom - top < 2) return; // nothing can be enclosed
 
-                    for (int t = 0; t < dx.length; t++) {
-                        x = p.x + dx[t];
-                        y = p.y + dy[t];
-                        if (x < 0 || x >= w || y < 0 || y >= h) {
-                            // not border but touch the edge of the pixmap, should be outside the border
-                            isOverflow = true;
-                            continue;
-                        }
-                        if (!vis[x][y]) {
-                            if ((!border[x][y])) {
-                                q.addLast(new GridPoint2(x, y));
+        // Visited pixels of the bounding box, and a queue of them as x + y * boxWidth, which is also the area found.
+        int boxWidth = right - left + 1, boxHeight = bottom - top + 1;
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            boolean[] vis = arena.mask(boxWidth * boxHeight);
+            int[] queue = arena.queue(boxWidth * boxHeight);
+            int color = Color.rgba8888(fill);
+            for (int i = 1; i < boxWidth - 1; i++) {
+                for (int j = 1; j < boxHeight - 1; j++) {
+                    if (vis[i + j * boxWidth] || border[left + i][top + j]) continue;
+                    boolean isOverflow = false;
+                    int head = 0, tail = 0;
+                    vis[i + j * boxWidth] = true;
+                    queue[tail++] = i + j * boxWidth;
+                    while (head < tail) {
+                        int p = queue[head++], px = p % boxWidth, py = p / boxWidth;
+                        for (int t = 0; t < dx.length; t++) {
+                            int x = px + dx[t], y = py + dy[t];
+                            if (x < 0 || x >= boxWidth || y < 0 || y >= boxHeight) {
+                                // not border but touch the side of the bounding box, should be outside the border
+                                isOverflow = true;
+                                continue;
+                            }
+                            if (!vis[x + y * boxWidth] && !border[left + x][top + y]) {
+                                vis[x + y * boxWidth] = true;
+                                queue[tail++] = x + y * boxWidth;
                             }
                         }
                     }
-                    if (!border[p.x][p.y]) {
-                        list.add(p);
+                    if (!isOverflow) {
+                        for (int k = 0; k < tail; k++) {
+                            pixmap.drawPixel(left + queue[k] % boxWidth, top + queue[k] / boxWidth, color);
+                        }
                     }
                 }
-                if (!isOverflow) {
-                    for (GridPoint2 point : list) {
-                        pixmap.drawPixel(point.x, point.y, color);
+            }
+        } finally {
+            Arrays.fill(arena.mask, 0, Math.min(arena.mask.length, boxWidth * boxHeight), false);
+            arena.release();
+        }
+    }
+
+    /**
+     * Resize src down to dst by averaging every scale x scale block, for rows [yStart, yEnd) of dst.
+     * Both Pixmaps must be RGBA8888 and src must be exactly scale times larger.
+     * Reads and writes bytes of {@link Pixmap#getPixels()} a row at a time, so different rows can be done in parallel.
+     * Every channel is the rounded average of its block, so a block of a single color stays exactly that color.
+     */
+    public static void downsample(Pixmap src, Pixmap dst, int scale, int yStart, int yEnd) {
+        downsample(src, dst, 0, 0, scale, yStart, yEnd);
+    }
+
+    /**
+     * Resize src down into the region of dst whose top left corner is (dstX, dstY), e.g. a region of an atlas.
+     * The region is (src width / scale) x (src height / scale), rows [yStart, yEnd) are relative to it.
+     *
+     * @see H#downsample(Pixmap, Pixmap, int, int, int)
+     */
+    public static void downsample(Pixmap src, Pixmap dst, int dstX, int dstY, int scale, int yStart, int yEnd) {
+        int width = src.getWidth() / scale, srcRowBytes = src.getWidth() * 4, dstRowBytes = width * 4;
+        int area = scale * scale, srcBytes = srcRowBytes * scale;
+        // duplicate() to have our own position, as other rows may be working on the same buffers
+        ByteBuffer srcPixels = src.getPixels().duplicate(), dstPixels = dst.getPixels().duplicate();
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            // source rows of a block, then the row written
+            byte[] rows = arena.rows(srcBytes + dstRowBytes);
+            int[] sum = arena.sums(dstRowBytes);
+            for (int y = yStart; y < yEnd; y++) {
+                srcPixels.position(y * scale * srcRowBytes);
+                srcPixels.get(rows, 0, srcBytes);
+                Arrays.fill(sum, 0, dstRowBytes, 0);
+                for (int row = 0; row < scale; row++) {
+                    int offset = row * srcRowBytes;
+                    for (int i = 0; i < srcRowBytes; i++) {
+                        // (i / 4) / scale is the pixel, i % 4 is the channel
+                        sum[((i >> 2) / scale << 2) | (i & 3)] += rows[offset + i] & 0xff;
                     }
                 }
-                list.clear();
+                for (int i = 0; i < dstRowBytes; i++) {
+                    rows[srcBytes + i] = (byte) ((sum[i] + area / 2) / area);
+                }
+                dstPixels.position(((dstY + y) * dst.getWidth() + dstX) * 4);
+                dstPixels.put(rows, srcBytes, dstRowBytes);
             }
+        } finally {
+            arena.release();
         }
     }
 
     public static double svgReadDouble(String s, double k) {
         if (s.endsWith("%"))
-            return Double.parseDouble(s.substring(0, s.length() - 2)) * k / 100.0;
+            return Double.parseDouble(s.substring(0, s.length() - 1)) * k / 100.0;
         return Double.parseDouble(s);
     }
 
@@ -414,67 +500,142 @@ public class H {
     }
 
     public static Color svgReadColor(XmlReader.Element element, String property) {
-        try {
-            String color = getAttribute(element, property);
-            if (color.toLowerCase().equals("currentcolor")) {
-                do {
-                    color = getAttribute(element, "color");
-                    element = element.getParent();
-                } while (color.toLowerCase().equals("currentcolor"));
+        String color = getAttribute(element, property, null);
+        // currentColor refers to color of the element having it, which may be currentColor too
+        while (color != null && color.toLowerCase().equals("currentcolor")) {
+            if (element == null) return defaultColor;
+            color = getAttribute(element, "color", null);
+            element = element.getParent();
+        }
+        if (color == null) return defaultColor;
+        if (color.equals("none")) return Color.CLEAR;
+        if (color.startsWith("#")) return Color.valueOf(color.replace("#", ""));
+        return colorMap.get(color);
+    }
+
+    /**
+     * Parse a color into RGBA8888 without making a {@link Color}, e.g. {@code red}, {@code #f00}, {@code #f00f}, {@code #ff0000},
+     * {@code #ff0000ff}, {@code rgb(255, 0, 0)}, {@code rgb(100%, 0%, 0%)} or {@code rgba(255, 0, 0, 0.5)}. {@code none} is transparent.
+     *
+     * @return defaultValue if value is not a color, such as {@code url(#gradient)}, or is malformed.
+     */
+    public static int parseColor(String value, int defaultValue) {
+        int length = value.length();
+        if (length == 0) return defaultValue;
+        if (value.charAt(0) == '#') {
+            int rgba = 0;
+            for (int i = 1; i < length; i++) {
+                int digit = Character.digit(value.charAt(i), 16);
+                if (digit < 0) return defaultValue;
+                rgba = rgba << 4 | digit;
             }
-            if (color.equals("none")) {
-                return Color.CLEAR;
+            switch (length - 1) {
+                case 3: // #rgb, every digit doubled
+                    return (rgba >> 8) * 0x11 << 24 | (rgba >> 4 & 0xf) * 0x11 << 16 | (rgba & 0xf) * 0x11 << 8 | 0xff;
+                case 4: // #rgba
+                    return (rgba >> 12) * 0x11 << 24 | (rgba >> 8 & 0xf) * 0x11 << 16 | (rgba >> 4 & 0xf) * 0x11 << 8 | (rgba & 0xf) * 0x11;
+                case 6:
+                    return rgba << 8 | 0xff;
+                case 8:
+                    return rgba;
+                default:
+                    return defaultValue;
             }
-            if (color.startsWith("#")) return Color.valueOf(color.replace("#", ""));
-            return colorMap.get(color);
-        } catch (NullPointerException | GdxRuntimeException ignored) {
-            return defaultColor;
         }
+        if (value.startsWith("rgb")) return parseRgb(value, defaultValue);
+        int rgba = colorInts.get(value, 0);
+        if (rgba != 0 || colorInts.containsKey(value)) return rgba;
+        return colorInts.get(value.toLowerCase(), defaultValue);
+    }
+
+    /**
+     * @see #parseColor(String, int)
+     */
+    static int parseRgb(String value, int defaultValue) {
+        int open = value.indexOf('('), close = value.lastIndexOf(')');
+        if (open < 0 || close < open) return defaultValue;
+        SvgPath.Lexer lexer = new SvgPath.Lexer(value.substring(open + 1, close), "color");
+        int rgba = 0xff, channels = 0;
+        try {
+            while (lexer.skipSeparators()) {
+                char c = lexer.s.charAt(lexer.index);
+                if (channels == 4 || !(('0' <= c && c <= '9') || c == '.' || c == '-' || c == '+')) return defaultValue;
+                float channel = lexer.number();
+                if (lexer.index < lexer.length && lexer.s.charAt(lexer.index) == '%') {
+                    lexer.index++;
+                    channel = channel * 255 / 100;
+                } else if (channels == 3) {
+                    channel *= 255; // alpha of rgba() is in [0, 1]
+                }
+                int shift = 24 - 8 * channels++;
+                rgba = rgba & ~(0xff << shift) | Math.max(0, Math.min(255, Math.round(channel))) << shift;
+            }
+        } catch (IllegalArgumentException e) {
+            return defaultValue; // a sign or a dot without digits, e.g. "rgb(+, 0, 0)"
+        }
+        return channels >= 3 ? rgba : defaultValue;
     }
 
     public static Color color8BitsToFloat(int r, int g, int b, int a) {
-        return new Color(r / 256.0f, g / 256.0f, b / 256.0f, a / 256.0f);
+        return new Color(r / 255f, g / 255f, b / 255f, a / 255f);
     }
 
     public static Color color8BitsToFloat(int r, int g, int b) {
-        return new Color(r / 256.0f, g / 256.0f, b / 256.0f, 1f);
+        return new Color(r / 255f, g / 255f, b / 255f, 1f);
     }
 
     public static String getAttribute(XmlReader.Element element, String attribute) {
         if (element == null) {
             throw new GdxRuntimeException("cannot read attribute `" + attribute + "` on null element");
         }
-        try {
-            return element.getAttribute(attribute);
-        } catch (GdxRuntimeException | NullPointerException exception) {
-            try {
-                return getAttribute(element.getParent(), attribute);
-            } catch (GdxRuntimeException | NullPointerException e) {
-                throw new GdxRuntimeException("No attribute \"" + attribute + "\" in element \"" + element.toString() + "\" or its parents");
-            }
+        String value = getAttribute(element, attribute, null);
+        if (value == null) {
+            throw new GdxRuntimeException("No attribute \"" + attribute + "\" in element \"" + element.toString() + "\" or its parents");
+        }
+        return value;
+    }
+
+    /**
+     * Look for attribute in element and then its parents, without throwing.
+     *
+     * @return defaultValue if none of them has it.
+     */
+    @Null
+    public static String getAttribute(@Null XmlReader.Element element, String attribute, @Null String defaultValue) {
+        for (; element != null; element = element.getParent()) {
+            String value = element.getAttribute(attribute, null);
+            if (value != null) return value;
         }
+        return defaultValue;
     }
 
+    /**
+     * @deprecated resolves everything again per element, see {@link SvgContext} and {@link SvgStyle}
+     */
+    @Deprecated
     public static class SVGBasicInfo {
         int x_min, y_min;
         int width, height;
         Color fill, stroke;
+        ScanlineRasterizer.FillRule fillRule;
         double strokeWidth;
+        Stroker.LineJoin lineJoin;
+        Stroker.LineCap lineCap;
+        float miterLimit;
 
         public SVGBasicInfo(XmlReader.Element element) {
-            try {
-                String[] viewbox = H.getAttribute(element, "viewBox").split(" ");
-                x_min = Integer.parseInt(viewbox[0]);
-                y_min = Integer.parseInt(viewbox[1]);
-                width = Integer.parseInt(viewbox[2]);
-                height = Integer.parseInt(viewbox[3]);
-            } catch (GdxRuntimeException | NullPointerException ignored) {
-                width = Integer.parseInt(H.getAttribute(element, "width"));
-                height = Integer.parseInt(H.getAttribute(element, "height"));
-            }
+            SvgContext context = SvgContext.of(element);
+            x_min = (int) context.viewBoxX;
+            y_min = (int) context.viewBoxY;
+            width = (int) context.viewBoxWidth;
+            height = (int) context.viewBoxHeight;
             fill = H.svgReadColor(element, "fill");
             stroke = H.svgReadColor(element, "stroke");
+            fillRule = ScanlineRasterizer.FillRule.parse(H.getAttribute(element, "fill-rule", null));
             strokeWidth = H.svgReadDouble(H.getAttribute(element, "stroke-width"), Math.sqrt(width * width + height * height));
+            lineJoin = Stroker.LineJoin.parse(H.getAttribute(element, "stroke-linejoin", null));
+            lineCap = Stroker.LineCap.parse(H.getAttribute(element, "stroke-linecap", null));
+            miterLimit = SvgStyle.parseMiterLimit(H.getAttribute(element, "stroke-miterlimit", null), 4);
         }
     }
 
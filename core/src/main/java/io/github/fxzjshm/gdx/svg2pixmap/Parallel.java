@@ -0,0 +1,278 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+import com.badlogic.gdx.utils.async.AsyncResult;
+import com.badlogic.gdx.utils.async.ThreadUtils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Split work on a Pixmap into bands of rows and run them on {@link Parallel#executor}.
+ * Bands are not assigned in advance: the caller and the tasks it submitted take the next band left until none is,
+ * so the caller keeps working instead of waiting for tasks still queued. At the end it only waits for bands already
+ * running on other threads, and tasks starting after that find nothing to do. So the pool can be shared, e.g. renders
+ * submitted to the same pool as their bands never wait for a queued task, and a busy pool only makes a render slower.
+ * <p>
+ * Calls made from inside a band (e.g. svg2Pixmap called by a band of something else) run inline,
+ * so that a render does not flood the pool with the bands of another one.
+ */
+public class Parallel {
+
+    /**
+     * Runs every task on the calling thread. Use this to render without any background thread.
+     */
+    public static final IExecutor SYNCHRONOUS = task -> {
+        task.run();
+        return Done.INSTANCE;
+    };
+
+    /**
+     * Where bands are run. All renders share it, so concurrent callers don't start more threads than it has.
+     * Defaults to a pool of {@link Runtime#availableProcessors()} threads.
+     * <p>
+     * Anything returning a {@link Future} can be plugged in, for example
+     * {@code Parallel.executor = Executors.newFixedThreadPool(4)::submit;},
+     * {@code Parallel.executor = ForkJoinPool.commonPool()::submit;} or, on newer JVMs,
+     * {@code Parallel.executor = Executors.newVirtualThreadPerTaskExecutor()::submit;}.
+     * It may be the same pool the renders themselves run on, see {@link Parallel}.
+     * Remember to set {@link Parallel#parallelism} accordingly.
+     */
+    public static IExecutor executor = new AsyncExecutorAdapter(H.asyncExecutor);
+
+    /**
+     * How many bands {@link Parallel#executor} can run at the same time.
+     */
+    public static int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Rows are split into about (parallelism * bandsPerThread) bands, so that a slow band does not keep others waiting.
+     */
+    public static int bandsPerThread = 4;
+
+    static final ThreadLocal<Boolean> insideBand = new ThreadLocal<>();
+
+    /**
+     * Run task on rows [0, height), split into bands, and return after all of them finished.
+     * Exceptions thrown by a band are re-thrown here, wrapped in {@link GdxRuntimeException}
+     * if it was on another thread.
+     */
+    public static void forRows(int height, IBandTask task) {
+        IExecutor executor = Parallel.executor;
+        int bands = Math.min(height, parallelism * bandsPerThread);
+        if (bands <= 1 || executor == SYNCHRONOUS || Boolean.TRUE.equals(insideBand.get())) {
+            runBand(task, 0, height);
+            return;
+        }
+
+        Bands work = new Bands(task, height, bands);
+        Helper[] helpers = new Helper[Math.min(parallelism, bands) - 1];
+        boolean done = false;
+        try {
+            for (int i = 0; i < helpers.length; i++) {
+                helpers[i] = new Helper(work);
+                helpers[i].future = executor.submit(helpers[i]);
+            }
+            work.run();
+            done = true;
+        } finally {
+            work.stop(); // if a band failed, others don't start any more
+            GdxRuntimeException exception = null;
+            for (Helper helper : helpers) {
+                // a helper still queued would find nothing to do, only wait for the ones already running
+                if (helper == null || helper.state.compareAndSet(Helper.QUEUED, Helper.ABANDONED)) continue;
+                try {
+                    join(helper.future);
+                } catch (GdxRuntimeException e) {
+                    if (exception == null) exception = e;
+                }
+            }
+            // an exception of the caller's own band goes first
+            if (done && exception != null) throw exception;
+        }
+    }
+
+    /**
+     * Bands of one {@link #forRows} call, taken one by one by whoever runs it.
+     */
+    static class Bands implements Runnable {
+        final IBandTask task;
+        final int height, bands;
+        final AtomicInteger next = new AtomicInteger();
+
+        Bands(IBandTask task, int height, int bands) {
+            this.task = task;
+            this.height = height;
+            this.bands = bands;
+        }
+
+        @Override
+        public void run() {
+            for (int i = next.getAndIncrement(); i < bands; i = next.getAndIncrement()) {
+                runBand(task, bandStart(height, bands, i), bandStart(height, bands, i + 1));
+            }
+        }
+
+        void stop() {
+            next.set(bands);
+        }
+    }
+
+    /**
+     * A task submitted to the executor, which takes bands if it starts before the caller gave up on it.
+     */
+    static class Helper implements Runnable {
+        static final int QUEUED = 0, RUNNING = 1, ABANDONED = 2;
+
+        final Bands work;
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        Future<?> future;
+
+        Helper(Bands work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            if (state.compareAndSet(QUEUED, RUNNING)) work.run();
+        }
+    }
+
+    static void runBand(IBandTask task, int yStart, int yEnd) {
+        Boolean outer = insideBand.get();
+        insideBand.set(Boolean.TRUE);
+        try {
+            task.run(yStart, yEnd);
+        } finally {
+            insideBand.set(outer);
+        }
+    }
+
+    static int bandStart(int height, int bands, int i) {
+        return (int) ((long) height * i / bands);
+    }
+
+    static void join(Future<?> result) {
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            throw new GdxRuntimeException("Interrupted while waiting for a band", e);
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException("Exception occurred in a band", e.getCause());
+        }
+    }
+
+    /**
+     * @see Parallel#forRows(int, IBandTask)
+     */
+    public interface IBandTask {
+        /**
+         * Do the work on rows [yStart, yEnd).
+         */
+        void run(int yStart, int yEnd);
+    }
+
+    /**
+     * Something that runs tasks, such as {@code ExecutorService::submit}.
+     *
+     * @see Parallel#executor
+     */
+    public interface IExecutor {
+        /**
+         * Start running task, maybe on another thread.
+         *
+         * @return a Future whose {@link Future#get()} blocks until task finished.
+         */
+        Future<?> submit(Runnable task);
+    }
+
+    /**
+     * Runs tasks on a libGDX {@link AsyncExecutor}, which works on every backend.
+     */
+    public static class AsyncExecutorAdapter implements IExecutor {
+        final AsyncExecutor asyncExecutor;
+
+        public AsyncExecutorAdapter(AsyncExecutor asyncExecutor) {
+            this.asyncExecutor = asyncExecutor;
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            final AsyncResult<Void> result = asyncExecutor.submit(() -> {
+                task.run();
+                return null;
+            });
+            return new Future<Void>() {
+                @Override
+                public boolean cancel(boolean mayInterruptIfRunning) {
+                    return false;
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return false;
+                }
+
+                @Override
+                public boolean isDone() {
+                    return result.isDone();
+                }
+
+                @Override
+                public Void get() {
+                    return result.get();
+                }
+
+                /**
+                 * AsyncResult can only wait without a limit, so poll it until the deadline.
+                 */
+                @Override
+                public Void get(long timeout, TimeUnit unit) throws TimeoutException {
+                    long deadline = TimeUtils.nanoTime() + unit.toNanos(timeout);
+                    while (!result.isDone()) {
+                        if (TimeUtils.nanoTime() - deadline >= 0) throw new TimeoutException("Not done after " + timeout + " " + unit);
+                        ThreadUtils.yield();
+                    }
+                    return result.get();
+                }
+            };
+        }
+    }
+
+    /**
+     * An already finished Future.
+     */
+    static class Done implements Future<Object> {
+        static final Done INSTANCE = new Done();
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return true;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of rendered Pixmaps, keyed by the SVG file, target size and anti-aliasing settings.
+ * When native memory of cached Pixmaps exceeds the budget, the least recently used ones are evicted.
+ * <p>
+ * The cache owns the Pixmaps. Every {@link #obtain} must be paired with a {@link #free} instead of {@link Pixmap#dispose()}.
+ * A Pixmap evicted while still obtained by someone is disposed when the last one frees it.
+ * A Pixmap larger than the whole budget is not cached at all, but still handed out and disposed the same way.
+ * <p>
+ * Thread-safe. Rendering of a miss happens outside the lock.
+ */
+public class PixmapCache implements Disposable {
+    final long budget;
+    long bytes = 0;
+    long hits = 0, misses = 0, evictions = 0;
+
+    /**
+     * In access order, so the first one is the least recently used.
+     */
+    final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    final IdentityHashMap<Pixmap, Entry> owners = new IdentityHashMap<>();
+
+    /**
+     * @param budget how many bytes of Pixmap memory to keep at most.
+     */
+    public PixmapCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Get the rendered Pixmap, render it if not cached yet.
+     *
+     * @return a Pixmap owned by this cache. Do not dispose it, call {@link #free(Pixmap)} when not used anymore.
+     */
+    public Pixmap obtain(String fileContent, int width, int height) {
+        Key key = new Key(fileContent, width, height);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                entry.references++;
+                return entry.pixmap;
+            }
+            misses++;
+        }
+
+        Pixmap pixmap = Svg2Pixmap.svg2Pixmap(fileContent, width, height);
+
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // someone else rendered the same one meanwhile
+                pixmap.dispose();
+            } else {
+                entry = new Entry(pixmap);
+                owners.put(pixmap, entry);
+                if (entry.size > budget) {
+                    entry.evicted = true; // would never fit, so it is disposed once freed
+                } else {
+                    entries.put(key, entry);
+                    bytes += entry.size;
+                }
+            }
+            // referenced first, so that evicting never disposes what is about to be returned
+            entry.references++;
+            evict();
+            return entry.pixmap;
+        }
+    }
+
+    /**
+     * Tell the cache that a Pixmap from {@link #obtain} is not used by the caller anymore.
+     */
+    public synchronized void free(Pixmap pixmap) {
+        Entry entry = owners.get(pixmap);
+        if (entry == null) throw new GdxRuntimeException("Pixmap is not from this cache or has been freed");
+        if (entry.references <= 0) throw new GdxRuntimeException("Pixmap has been freed more times than obtained");
+        entry.references--;
+        if (entry.references == 0 && entry.evicted) {
+            owners.remove(pixmap);
+            pixmap.dispose();
+        }
+    }
+
+    /**
+     * Evict least recently used entries until within the budget.
+     */
+    void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes > budget && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            bytes -= entry.size;
+            evictions++;
+            entry.evicted = true;
+            if (entry.references == 0) {
+                owners.remove(entry.pixmap);
+                entry.pixmap.dispose();
+            }
+        }
+    }
+
+    /**
+     * Evict all entries. Pixmaps still obtained are disposed when freed.
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.evicted = true;
+            if (entry.references == 0) {
+                owners.remove(entry.pixmap);
+                entry.pixmap.dispose();
+            }
+        }
+        entries.clear();
+        bytes = 0;
+    }
+
+    @Override
+    public void dispose() {
+        clear();
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return bytes of Pixmaps currently cached.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return how many bytes of native memory the Pixmap uses.
+     */
+    public static long sizeOf(Pixmap pixmap) {
+        long pixels = (long) pixmap.getWidth() * pixmap.getHeight();
+        switch (pixmap.getFormat()) {
+            case Alpha:
+            case Intensity:
+                return pixels;
+            case LuminanceAlpha:
+            case RGB565:
+            case RGBA4444:
+                return pixels * 2;
+            case RGB888:
+                return pixels * 3;
+            default:
+                return pixels * 4;
+        }
+    }
+
+    static class Entry {
+        final Pixmap pixmap;
+        final long size;
+        int references = 0;
+        boolean evicted = false;
+
+        Entry(Pixmap pixmap) {
+            this.pixmap = pixmap;
+            this.size = sizeOf(pixmap);
+        }
+    }
+
+    /**
+     * Identifies a rendering. The SVG file is kept, so that different files are never mistaken for each other,
+     * it is usually much smaller than the Pixmap anyway.
+     */
+    static class Key {
+        final String fileContent;
+        final int width, height;
+        final Svg2Pixmap.AntiAliasing antiAliasing;
+        final int generateScale;
+
+        Key(String fileContent, int width, int height) {
+            this.fileContent = fileContent;
+            this.width = width;
+            this.height = height;
+            this.antiAliasing = Svg2Pixmap.antiAliasing;
+            this.generateScale = Svg2Pixmap.generateScale;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return width == key.width && height == key.height && antiAliasing == key.antiAliasing
+                    && generateScale == key.generateScale && fileContent.equals(key.fileContent);
+        }
+
+        @Override
+        public int hashCode() {
+            // String caches its hash, so only the first lookup of a file goes through its chars
+            int result = fileContent.hashCode();
+            result = 31 * result + width;
+            result = 31 * result + height;
+            return 31 * result + antiAliasing.ordinal() * 17 + generateScale;
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Null;
+
+import java.util.Arrays;
+
+/**
+ * Fill polygons scanline by scanline using an active edge table.
+ * Feed a path with {@link #moveTo}, {@link #lineTo}, {@link #quadTo}, {@link #cubicTo} and {@link #close},
+ * curves are flattened into straight edges by {@link Flattener}. Then {@link #fill} writes whole spans into the Pixmap.
+ * Every sub-path is closed implicitly when filling, as SVG does.
+ * <p>
+ * A pixel is inside the shape if its center is, so the cost is O(edges + covered spans).
+ * <p>
+ * {@link #fillCoverage} is the anti-aliased alternative: it accumulates the exact area of each pixel
+ * covered by the shape, like font rasterizers (e.g. font-rs, stb_truetype) do, so smooth edges come out in one pass.
+ */
+public class ScanlineRasterizer implements Flattener.ISegmentConsumer {
+
+    /**
+     * The {@code fill-rule} property.
+     * See https://www.w3.org/TR/SVG11/painting.html#FillRuleProperty
+     */
+    public enum FillRule {
+        NONZERO, EVENODD;
+
+        /**
+         * @return {@link #EVENODD} if {@code value} is "evenodd", otherwise {@link #NONZERO} which is the default one.
+         */
+        public static FillRule parse(@Null String value) {
+            if (value != null && value.trim().equals("evenodd")) return EVENODD;
+            return NONZERO;
+        }
+    }
+
+    /**
+     * Edges, 4 floats (x0, y0, x1, y1) per edge, in the order they were added.
+     */
+    float[] edges = new float[64];
+    int edgeCount = 0;
+
+    float startX, startY, lastX, lastY;
+    boolean hasSubPath = false;
+
+    /**
+     * Bounds of edges, in pixels. Filling never looks outside of them, so its cost and buffers scale with the shape,
+     * not with the Pixmap.
+     */
+    float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY,
+            maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+
+    /**
+     * Work buffers of filling. Filling only reads edges, so several threads can fill different rows of the same shape,
+     * each with its own arena.
+     */
+    @Null
+    final ScratchArena scratch;
+
+    public ScanlineRasterizer() {
+        this(new ScratchArena());
+    }
+
+    /**
+     * @param scratch buffers to share with other rasterizers filled on the same thread, or null for a layer
+     *                filled with the arena of whichever thread fills it, e.g. by {@link TileRenderer},
+     *                so that thousands of layers do not keep buffers of their own
+     */
+    ScanlineRasterizer(@Null ScratchArena scratch) {
+        this.scratch = scratch;
+    }
+
+    /**
+     * Forget all edges, so that this rasterizer can be used for another shape.
+     */
+    public void reset() {
+        edgeCount = 0;
+        hasSubPath = false;
+        minX = minY = Float.POSITIVE_INFINITY;
+        maxX = maxY = Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Forget all edges and give back the memory they took.
+     */
+    void trim() {
+        reset();
+        edges = new float[64];
+    }
+
+    /**
+     * Only pixels in [clipX, clipX + clipWidth) x [clipY, clipY + clipHeight) are filled. Whole Pixmap if clipWidth < 0.
+     */
+    int clipX = 0, clipY = 0, clipWidth = -1, clipHeight = -1;
+
+    /**
+     * Fill only pixels inside the rectangle, e.g. a region of an atlas. Coordinates of edges stay the same.
+     */
+    public void setClip(int x, int y, int width, int height) {
+        clipX = x;
+        clipY = y;
+        clipWidth = width;
+        clipHeight = height;
+    }
+
+    /**
+     * Fill the whole Pixmap again.
+     */
+    public void clearClip() {
+        clipWidth = clipHeight = -1;
+    }
+
+    /**
+     * @return how many straight edges the shape has, after flattening.
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public void moveTo(float x, float y) {
+        close();
+        startX = lastX = x;
+        startY = lastY = y;
+        hasSubPath = true;
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        if (!hasSubPath) moveTo(lastX, lastY);
+        addEdge(lastX, lastY, x, y);
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * Quadratic Bezier curve from the current point.
+     */
+    public void quadTo(float x1, float y1, float x, float y) {
+        Flattener.quadTo(lastX, lastY, x1, y1, x, y, this);
+    }
+
+    /**
+     * Cubic Bezier curve from the current point.
+     */
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        Flattener.cubicTo(lastX, lastY, x1, y1, x2, y2, x, y, this);
+    }
+
+    /**
+     * Close current sub-path, i.e. add an edge back to the point of last {@link #moveTo}.
+     */
+    public void close() {
+        if (hasSubPath && (lastX != startX || lastY != startY)) {
+            addEdge(lastX, lastY, startX, startY);
+        }
+        lastX = startX;
+        lastY = startY;
+        hasSubPath = false;
+    }
+
+    /**
+     * Fill the shape described by edges added before.
+     *
+     * @param color the color to fill with, blended with the Pixmap's {@link Pixmap.Blending} like {@link Pixmap#drawPixel(int, int, int)} does.
+     */
+    public void fill(Pixmap pixmap, Color color, FillRule fillRule) {
+        close();
+        int w = pixmap.getWidth(), h = pixmap.getHeight();
+        ScratchArena arena = scratch != null ? scratch : ScratchArena.acquire();
+        try {
+            if (clipWidth < 0) {
+                fill(pixmap, color, fillRule, 0, 0, w, h, arena);
+            } else {
+                fill(pixmap, color, fillRule, Math.max(0, clipX), Math.max(0, clipY),
+                        Math.min(w, clipX + clipWidth), Math.min(h, clipY + clipHeight), arena);
+            }
+        } finally {
+            if (arena != scratch) arena.release();
+        }
+    }
+
+    /**
+     * Fill pixels of [left, right) x [top, bottom) only. Every row is computed from the edges alone,
+     * so filling the Pixmap in several bands of rows gives exactly the same result as in one.
+     * Edges must have been closed.
+     */
+    void fill(Pixmap pixmap, Color color, FillRule fillRule, int left, int top, int right, int bottom, ScratchArena scratch) {
+        if (edgeCount == 0 || color == null || color.a == 0) return;
+        // pixel centers inside the bounds
+        left = Math.max(left, (int) Math.ceil(minX - 0.5f));
+        top = Math.max(top, (int) Math.ceil(minY - 0.5f));
+        right = Math.min(right, (int) Math.ceil(maxX - 0.5f));
+        bottom = Math.min(bottom, (int) Math.ceil(maxY - 0.5f));
+        if (left >= right || top >= bottom) return;
+        int rgba = Color.rgba8888(color);
+        if (isRectangle()) {
+            for (int y = top; y < bottom; y++) fillSpan(pixmap, y, left, right, rgba);
+            return;
+        }
+
+        // Bucket edges by the first scanline they cross, so that no sorting is needed.
+        int rows = bottom - top;
+        int[] bucketHead = scratch.bucketHead(rows), next = scratch.next(edgeCount), active = scratch.active(edgeCount);
+        float[] crossX = scratch.crossX(edgeCount);
+        int[] crossDir = scratch.crossDir(edgeCount);
+        Arrays.fill(bucketHead, 0, rows, -1);
+        int minRow = bottom, maxRow = -1;
+        for (int i = 0; i < edgeCount; i++) {
+            float y0 = edges[i * 4 + 1], y1 = edges[i * 4 + 3];
+            // scanline j is sampled at j + 0.5
+            int first = Math.max(top, (int) Math.ceil(Math.min(y0, y1) - 0.5f));
+            int last = Math.min(bottom, (int) Math.ceil(Math.max(y0, y1) - 0.5f));
+            if (first >= last) continue; // horizontal or outside
+            next[i] = bucketHead[first - top];
+            bucketHead[first - top] = i;
+            minRow = Math.min(minRow, first);
+            maxRow = Math.max(maxRow, last);
+        }
+
+        int activeCount = 0;
+        for (int y = minRow; y < maxRow; y++) {
+            float sampleY = y + 0.5f;
+
+            // remove finished edges
+            int kept = 0;
+            for (int k = 0; k < activeCount; k++) {
+                int e = active[k];
+                if (Math.max(edges[e * 4 + 1], edges[e * 4 + 3]) > sampleY) active[kept++] = e;
+            }
+            activeCount = kept;
+            // add new edges
+            for (int e = bucketHead[y - top]; e != -1; e = next[e]) {
+                active[activeCount++] = e;
+            }
+
+            // find crossings, insertion sort by x since the order changes little between scanlines
+            for (int k = 0; k < activeCount; k++) {
+                int e = active[k];
+                float x0 = edges[e * 4], y0 = edges[e * 4 + 1], x1 = edges[e * 4 + 2], y1 = edges[e * 4 + 3];
+                float x = x0 + (sampleY - y0) * (x1 - x0) / (y1 - y0);
+                int dir = y1 > y0 ? 1 : -1;
+                int m = k - 1;
+                while (m >= 0 && crossX[m] > x) {
+                    crossX[m + 1] = crossX[m];
+                    crossDir[m + 1] = crossDir[m];
+                    active[m + 1] = active[m];
+                    m--;
+                }
+                crossX[m + 1] = x;
+                crossDir[m + 1] = dir;
+                active[m + 1] = e;
+            }
+
+            // walk through crossings and fill spans which are inside
+            int winding = 0;
+            for (int k = 0; k < activeCount - 1; k++) {
+                winding += crossDir[k];
+                boolean inside = (fillRule == FillRule.EVENODD) ? ((winding & 1) != 0) : (winding != 0);
+                if (!inside) continue;
+                int x0 = Math.max(left, (int) Math.ceil(crossX[k] - 0.5f));
+                int x1 = Math.min(right, (int) Math.ceil(crossX[k + 1] - 0.5f));
+                if (x0 < x1) fillSpan(pixmap, y, x0, x1, rgba);
+            }
+        }
+    }
+
+    /**
+     * Fill the shape described by edges added before, anti-aliased by exact area coverage.
+     * Each edge deposits the signed area it covers into an accumulation buffer, then a running sum along a row gives
+     * the winding-weighted coverage of every pixel.
+     *
+     * @param color the color to fill with, its alpha is multiplied by coverage.
+     */
+    public void fillCoverage(Pixmap pixmap, Color color, FillRule fillRule) {
+        close();
+        int w = pixmap.getWidth(), h = pixmap.getHeight();
+        ScratchArena arena = scratch != null ? scratch : ScratchArena.acquire();
+        try {
+            if (clipWidth < 0) {
+                fillCoverage(pixmap, color, fillRule, 0, 0, w, h, arena);
+            } else {
+                fillCoverage(pixmap, color, fillRule, Math.max(0, clipX), Math.max(0, clipY),
+                        Math.min(w, clipX + clipWidth), Math.min(h, clipY + clipHeight), arena);
+            }
+        } finally {
+            if (arena != scratch) arena.release();
+        }
+    }
+
+    /**
+     * Anti-aliased fill of pixels of [left, right) x [top, bottom) only.
+     * Like {@link #fill(Pixmap, Color, FillRule, int, int, int, int, ScratchArena)}, the result does not depend on how rows are split.
+     */
+    void fillCoverage(Pixmap pixmap, Color color, FillRule fillRule, int left, int top, int right, int bottom, ScratchArena scratch) {
+        if (edgeCount == 0 || color == null || color.a == 0) return;
+        // pixels touched by the bounds, right to them the running sum is back to 0
+        left = Math.max(left, (int) Math.floor(minX));
+        top = Math.max(top, (int) Math.floor(minY));
+        right = Math.min(right, (int) Math.ceil(maxX) + 1);
+        bottom = Math.min(bottom, (int) Math.ceil(maxY));
+        if (left >= right || top >= bottom) return;
+        int rgba = Color.rgba8888(color) & 0xffffff00;
+        float alpha = color.a * 255;
+        if (isRectangle()) {
+            fillRectangleCoverage(pixmap, rgba, alpha, left, top, right, bottom);
+            return;
+        }
+        // x is relative to left, y stays as is, so the buffer is only as large as the area
+        int w = right - left, rows = bottom - top;
+        int stride = w + 2; // accumulateLine() may write 2 cells right to the last pixel
+        float[] area = scratch.area(stride * rows);
+
+        for (int i = 0; i < edgeCount; i++) {
+            float x0 = edges[i * 4] - left, y0 = edges[i * 4 + 1], x1 = edges[i * 4 + 2] - left, y1 = edges[i * 4 + 3];
+            if (Math.max(y0, y1) <= top || Math.min(y0, y1) >= bottom) continue;
+            // Split at x = 0 and x = w, then clamp, so that parts outside still count for pixels right to them.
+            float ta = (x1 != x0) ? (0 - x0) / (x1 - x0) : -1, tb = (x1 != x0) ? (w - x0) / (x1 - x0) : -1;
+            if (ta > tb) {
+                float t = ta;
+                ta = tb;
+                tb = t;
+            }
+            float px = x0, py = y0;
+            if (0 < ta && ta < 1) {
+                float qx = x0 + ta * (x1 - x0), qy = y0 + ta * (y1 - y0);
+                accumulateLine(area, px, py, qx, qy, w, top, bottom, stride);
+                px = qx;
+                py = qy;
+            }
+            if (0 < tb && tb < 1) {
+                float qx = x0 + tb * (x1 - x0), qy = y0 + tb * (y1 - y0);
+                accumulateLine(area, px, py, qx, qy, w, top, bottom, stride);
+                px = qx;
+                py = qy;
+            }
+            accumulateLine(area, px, py, x1, y1, w, top, bottom, stride);
+        }
+
+        boolean evenOdd = fillRule == FillRule.EVENODD;
+        for (int y = top; y < bottom; y++) {
+            int index = (y - top) * stride;
+            float sum = 0;
+            for (int x = 0; x < w; x++) {
+                sum += area[index + x];
+                area[index + x] = 0;
+                float coverage = Math.abs(sum);
+                if (evenOdd) {
+                    coverage = coverage % 2;
+                    if (coverage > 1) coverage = 2 - coverage;
+                } else if (coverage > 1) {
+                    coverage = 1;
+                }
+                int a = (int) (coverage * alpha + 0.5f);
+                if (a != 0) blendPixel(pixmap, left + x, y, rgba | a);
+            }
+            area[index + w] = area[index + w + 1] = 0;
+        }
+    }
+
+    /**
+     * @return whether edges are the two vertical sides of an axis-aligned rectangle, as horizontal ones are never kept.
+     * Such a shape is filled by spans straight away, whatever the fill rule.
+     */
+    boolean isRectangle() {
+        return edgeCount == 2 && edges[0] == edges[2] && edges[4] == edges[6];
+    }
+
+    /**
+     * Anti-aliased fill of the rectangle of the bounds, in pixels of [left, right) x [top, bottom).
+     * Coverage of a pixel is just the product of how much its row and its column overlap the rectangle,
+     * so pixels inside get one span per row.
+     */
+    void fillRectangleCoverage(Pixmap pixmap, int rgb, float alpha, int left, int top, int right, int bottom) {
+        int innerLeft = Math.max(left, (int) Math.ceil(minX)), innerRight = Math.min(right, (int) Math.floor(maxX));
+        for (int y = top; y < bottom; y++) {
+            float coverageY = Math.min(y + 1, maxY) - Math.max(y, minY);
+            for (int x = left; x < right; x++) {
+                if (x == innerLeft && innerLeft < innerRight) {
+                    int a = (int) (coverageY * alpha + 0.5f);
+                    if (a > 0) fillSpan(pixmap, y, innerLeft, innerRight, rgb | a);
+                    x = innerRight - 1;
+                    continue;
+                }
+                float coverage = coverageY * (Math.min(x + 1, maxX) - Math.max(x, minX));
+                int a = (int) (coverage * alpha + 0.5f);
+                if (a > 0) blendPixel(pixmap, x, y, rgb | a);
+            }
+        }
+    }
+
+    /**
+     * Deposit the signed area covered by the line (x0, y0) - (x1, y1) into area, for rows [top, bottom).
+     * x must be in [0, w] already. This is the same as what font-rs does,
+     * except that x is computed from y at every row instead of being accumulated, so that rows don't depend on each other.
+     */
+    static void accumulateLine(float[] area, float x0, float y0, float x1, float y1, int w, int top, int bottom, int stride) {
+        if (y0 == y1) return;
+        float dir = 1;
+        if (y0 > y1) {
+            dir = -1;
+            float t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+        }
+        x0 = Math.max(0, Math.min(w, x0));
+        x1 = Math.max(0, Math.min(w, x1));
+        float dxdy = (x1 - x0) / (y1 - y0);
+        int yEnd = Math.min(bottom, (int) Math.ceil(y1));
+        for (int y = Math.max(top, (int) Math.floor(y0)); y < yEnd; y++) {
+            int lineStart = (y - top) * stride;
+            float rowTop = Math.max(y, y0);
+            float x = x0 + (rowTop - y0) * dxdy;
+            float dy = Math.min(y + 1, y1) - rowTop;
+            float xNext = x + dxdy * dy;
+            float d = dy * dir;
+            float left = Math.min(x, xNext), right = Math.max(x, xNext);
+            float leftFloor = (float) Math.floor(left);
+            int leftI = (int) leftFloor;
+            float rightCeil = (float) Math.ceil(right);
+            int rightI = (int) rightCeil;
+            if (rightI <= leftI + 1) {
+                // stays in one pixel
+                float xmf = 0.5f * (x + xNext) - leftFloor;
+                area[lineStart + leftI] += d - d * xmf;
+                area[lineStart + leftI + 1] += d * xmf;
+            } else {
+                float s = 1 / (right - left);
+                float leftF = left - leftFloor;
+                float a0 = 0.5f * s * (1 - leftF) * (1 - leftF);
+                float rightF = right - rightCeil + 1;
+                float am = 0.5f * s * rightF * rightF;
+                area[lineStart + leftI] += d * a0;
+                if (rightI == leftI + 2) {
+                    area[lineStart + leftI + 1] += d * (1 - a0 - am);
+                } else {
+                    float a1 = s * (1.5f - leftF);
+                    area[lineStart + leftI + 1] += d * (a1 - a0);
+                    for (int xi = leftI + 2; xi < rightI - 1; xi++) {
+                        area[lineStart + xi] += d * s;
+                    }
+                    float a2 = a1 + (rightI - leftI - 3) * s;
+                    area[lineStart + rightI - 1] += d * (1 - a2 - am);
+                }
+                area[lineStart + rightI] += d * am;
+            }
+        }
+    }
+
+    /**
+     * Draw one pixel of color in RGBA8888, blended like {@link #fillSpan} does.
+     */
+    static void blendPixel(Pixmap pixmap, int x, int y, int rgba) {
+        SpanWriter.of(pixmap.getFormat()).fillSpan(pixmap, y, x, x + 1, rgba);
+    }
+
+    /**
+     * Fill pixels in [x0, x1) of row y with color in RGBA8888, written straight into the buffer whatever format pixmap is.
+     *
+     * @see SpanWriter
+     */
+    static void fillSpan(Pixmap pixmap, int y, int x0, int x1, int rgba) {
+        SpanWriter.of(pixmap.getFormat()).fillSpan(pixmap, y, x0, x1, rgba);
+    }
+
+    /**
+     * Source-over blending of two RGBA8888 colors, same as gdx2d does.
+     */
+    static int blend(int src, int dst) {
+        int srcR = src >>> 24, srcG = (src >>> 16) & 0xff, srcB = (src >>> 8) & 0xff, srcA = src & 0xff;
+        int dstR = dst >>> 24, dstG = (dst >>> 16) & 0xff, dstB = (dst >>> 8) & 0xff, dstA = dst & 0xff;
+        dstA -= (dstA * srcA) / 255;
+        int a = dstA + srcA;
+        if (a == 0) return 0;
+        dstR = (dstR * dstA + srcR * srcA) / a;
+        dstG = (dstG * dstA + srcG * srcA) / a;
+        dstB = (dstB * dstA + srcB * srcA) / a;
+        return (dstR << 24) | (dstG << 16) | (dstB << 8) | a;
+    }
+
+    void addEdge(float x0, float y0, float x1, float y1) {
+        if (y0 == y1) return; // never crosses a scanline
+        if (edgeCount * 4 + 4 > edges.length) {
+            float[] tmp = new float[edges.length * 2];
+            System.arraycopy(edges, 0, tmp, 0, edgeCount * 4);
+            edges = tmp;
+        }
+        int i = edgeCount * 4;
+        edges[i] = x0;
+        edges[i + 1] = y0;
+        edges[i + 2] = x1;
+        edges[i + 3] = y1;
+        edgeCount++;
+        minX = Math.min(minX, Math.min(x0, x1));
+        minY = Math.min(minY, Math.min(y0, y1));
+        maxX = Math.max(maxX, Math.max(x0, x1));
+        maxY = Math.max(maxY, Math.max(y0, y1));
+    }
+}
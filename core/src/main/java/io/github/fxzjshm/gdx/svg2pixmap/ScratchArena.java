@@ -0,0 +1,212 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Null;
+
+/**
+ * Work buffers of rendering, kept per thread and reused across paths and renders, so that rendering many files
+ * (e.g. in a server) does not allocate the same arrays and Pixmaps again and again.
+ * <p>
+ * Buffers grow as needed. After a render, if they hold more than {@link #maxBytes}, they are dropped,
+ * so that one huge file does not pin its buffers forever. Call {@link #trim()} to drop them anyway, e.g. on low memory.
+ * <pre>
+ * ScratchArena arena = ScratchArena.acquire();
+ * try {
+ *     float[] area = arena.area(size);
+ *     ...
+ * } finally {
+ *     arena.release();
+ * }
+ * </pre>
+ */
+public class ScratchArena {
+    /**
+     * Buffers of a thread larger than this are dropped when released.
+     */
+    public static int maxBytes = 16 * 1024 * 1024;
+
+    static final ThreadLocal<ScratchArena> local = new ThreadLocal<>();
+    /**
+     * Increased by {@link #trim()}, arenas of other threads drop their buffers once they see it.
+     */
+    static volatile int generation = 0;
+
+    static final int[] NO_INTS = new int[0];
+    static final float[] NO_FLOATS = new float[0];
+    static final boolean[] NO_BOOLEANS = new boolean[0];
+    static final byte[] NO_BYTES = new byte[0];
+
+    int seenGeneration = generation;
+    boolean inUse = false;
+
+    int[] bucketHead = NO_INTS, next = NO_INTS, active = NO_INTS, crossDir = NO_INTS, queue = NO_INTS, sums = NO_INTS;
+    float[] crossX = NO_FLOATS, area = NO_FLOATS;
+    boolean[] mask = NO_BOOLEANS;
+    byte[] rows = NO_BYTES;
+    @Null
+    Pixmap pixmap = null;
+
+    /**
+     * A pair of rasterizers sharing this arena, for a fill and its stroke.
+     */
+    final ScanlineRasterizer rasterizer = new ScanlineRasterizer(this), strokeRasterizer = new ScanlineRasterizer(this);
+    /**
+     * Turns outlines into {@link #strokeRasterizer}, or into the rasterizer given to {@link #stroker}.
+     */
+    final Stroker stroker = new Stroker(strokeRasterizer, 1, Stroker.LineJoin.MITER, Stroker.LineCap.BUTT, 4);
+
+    /**
+     * @return the arena of current thread, or a new one if it is already in use, e.g. by a render calling another render.
+     * Call {@link #release()} when done.
+     */
+    public static ScratchArena acquire() {
+        ScratchArena arena = local.get();
+        if (arena == null) {
+            arena = new ScratchArena();
+            local.set(arena);
+        } else if (arena.inUse) {
+            return new ScratchArena();
+        }
+        if (arena.seenGeneration != generation) {
+            arena.clear();
+            arena.seenGeneration = generation;
+        }
+        arena.inUse = true;
+        return arena;
+    }
+
+    /**
+     * Done with the buffers, which are kept for next {@link #acquire()} on this thread, unless they are larger than {@link #maxBytes}.
+     */
+    public void release() {
+        inUse = false;
+        stroker.out = strokeRasterizer; // not to keep a layer of TileRenderer alive
+        if (local.get() != this || bytes() > maxBytes) clear();
+    }
+
+    /**
+     * Drop the buffers of every thread. Current thread drops them now, other threads when they acquire their arena next time.
+     */
+    public static void trim() {
+        generation++;
+        ScratchArena arena = local.get();
+        if (arena != null && !arena.inUse) {
+            arena.clear();
+            arena.seenGeneration = generation;
+        }
+    }
+
+    /**
+     * @return how much memory the buffers take, in bytes, including the native memory of the Pixmap.
+     */
+    public long bytes() {
+        long bytes = 4L * (bucketHead.length + next.length + active.length + crossDir.length + queue.length + sums.length
+                + crossX.length + area.length + rasterizer.edges.length + strokeRasterizer.edges.length
+                + stroker.points.length + stroker.polygon.length) + mask.length + rows.length;
+        if (pixmap != null) bytes += PixmapCache.sizeOf(pixmap);
+        return bytes;
+    }
+
+    void clear() {
+        bucketHead = next = active = crossDir = queue = sums = NO_INTS;
+        crossX = area = NO_FLOATS;
+        mask = NO_BOOLEANS;
+        rows = NO_BYTES;
+        if (pixmap != null) {
+            pixmap.dispose();
+            pixmap = null;
+        }
+        rasterizer.trim();
+        strokeRasterizer.trim();
+        stroker.trim();
+    }
+
+    int[] bucketHead(int size) {
+        if (bucketHead.length < size) bucketHead = new int[size];
+        return bucketHead;
+    }
+
+    int[] next(int size) {
+        if (next.length < size) next = new int[size];
+        return next;
+    }
+
+    int[] active(int size) {
+        if (active.length < size) active = new int[size];
+        return active;
+    }
+
+    int[] crossDir(int size) {
+        if (crossDir.length < size) crossDir = new int[size];
+        return crossDir;
+    }
+
+    float[] crossX(int size) {
+        if (crossX.length < size) crossX = new float[size];
+        return crossX;
+    }
+
+    /**
+     * @return a buffer of zeros, which must be zeros again after use.
+     */
+    float[] area(int size) {
+        if (area.length < size) area = new float[size];
+        return area;
+    }
+
+    int[] queue(int size) {
+        if (queue.length < size) queue = new int[size];
+        return queue;
+    }
+
+    /**
+     * @return a buffer of falses, which must be falses again after use.
+     */
+    boolean[] mask(int size) {
+        if (mask.length < size) mask = new boolean[size];
+        return mask;
+    }
+
+    /**
+     * Pixels of rows, used by {@link H#downsample(Pixmap, Pixmap, int, int, int, int, int)}.
+     */
+    byte[] rows(int size) {
+        if (rows.length < size) rows = new byte[size];
+        return rows;
+    }
+
+    int[] sums(int size) {
+        if (sums.length < size) sums = new int[size];
+        return sums;
+    }
+
+    /**
+     * @return {@link #stroker} reset to put the stroke into out
+     */
+    Stroker stroker(ScanlineRasterizer out, float width, Stroker.LineJoin lineJoin, Stroker.LineCap lineCap, float miterLimit) {
+        return stroker.reset(out, width, lineJoin, lineCap, miterLimit);
+    }
+
+    /**
+     * @return a transparent Pixmap of format, at least width x height, blending {@link Pixmap.Blending#SourceOver}.
+     */
+    Pixmap pixmap(int width, int height, Pixmap.Format format) {
+        if (pixmap == null || pixmap.getFormat() != format || pixmap.getWidth() < width || pixmap.getHeight() < height) {
+            int w = width, h = height;
+            if (pixmap != null) {
+                if (pixmap.getFormat() == format) {
+                    w = Math.max(w, pixmap.getWidth());
+                    h = Math.max(h, pixmap.getHeight());
+                }
+                pixmap.dispose();
+            }
+            pixmap = new Pixmap(w, h, format);
+        } else {
+            pixmap.setBlending(Pixmap.Blending.None);
+            pixmap.setColor(0);
+            pixmap.fill(); // anything may have been drawn out of the area asked last time
+        }
+        pixmap.setBlending(Pixmap.Blending.SourceOver);
+        return pixmap;
+    }
+}
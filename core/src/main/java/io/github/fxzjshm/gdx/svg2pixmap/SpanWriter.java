@@ -0,0 +1,241 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Pixmap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes RGBA8888 colors straight into the pixel buffer of a Pixmap, one class per format,
+ * converting and blending exactly like gdx2d does, so drawing onto e.g. a 16-bit Pixmap needs neither a native call per span
+ * nor rendering in RGBA8888 and converting afterwards.
+ * <p>
+ * Writers only touch the pixels asked, so several threads can write different rows of the same Pixmap.
+ */
+abstract class SpanWriter {
+    /**
+     * 16-bit pixels are stored as native shorts by gdx2d.
+     */
+    static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Channels of 4, 5 and 6 bits scaled up to 8 bits, same tables as gdx2d.
+     */
+    static final int[] LU4 = new int[16], LU5 = new int[32], LU6 = new int[64];
+
+    static {
+        for (int i = 0; i < 16; i++) LU4[i] = (int) (i / 15f * 255);
+        for (int i = 0; i < 32; i++) LU5[i] = (int) (i / 31f * 255);
+        for (int i = 0; i < 64; i++) LU6[i] = (int) (i / 63f * 255);
+    }
+
+    static final SpanWriter RGBA8888 = new SpanWriter(4) {
+        @Override
+        int encode(int rgba) {
+            return rgba;
+        }
+
+        @Override
+        int decode(int value) {
+            return value;
+        }
+
+        @Override
+        int get(ByteBuffer pixels, int index) {
+            int value = pixels.getInt(index);
+            return pixels.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+        }
+
+        @Override
+        void put(ByteBuffer pixels, int index, int value) {
+            pixels.putInt(index, pixels.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+        }
+    };
+
+    static final SpanWriter RGB888 = new SpanWriter(3) {
+        @Override
+        int encode(int rgba) {
+            return rgba >>> 8;
+        }
+
+        @Override
+        int decode(int value) {
+            return value << 8 | 0xff;
+        }
+
+        @Override
+        int get(ByteBuffer pixels, int index) {
+            return (pixels.get(index) & 0xff) << 16 | (pixels.get(index + 1) & 0xff) << 8 | pixels.get(index + 2) & 0xff;
+        }
+
+        @Override
+        void put(ByteBuffer pixels, int index, int value) {
+            pixels.put(index, (byte) (value >> 16));
+            pixels.put(index + 1, (byte) (value >> 8));
+            pixels.put(index + 2, (byte) value);
+        }
+    };
+
+    static final SpanWriter RGB565 = new ShortWriter() {
+        @Override
+        int encode(int rgba) {
+            return (rgba >>> 27) << 11 | (rgba >>> 18 & 0x3f) << 5 | rgba >>> 11 & 0x1f;
+        }
+
+        @Override
+        int decode(int value) {
+            return LU5[value >> 11 & 0x1f] << 24 | LU6[value >> 5 & 0x3f] << 16 | LU5[value & 0x1f] << 8 | 0xff;
+        }
+    };
+
+    static final SpanWriter RGBA4444 = new ShortWriter() {
+        @Override
+        int encode(int rgba) {
+            return (rgba >>> 28) << 12 | (rgba >>> 20 & 0xf) << 8 | (rgba >>> 12 & 0xf) << 4 | rgba >>> 4 & 0xf;
+        }
+
+        @Override
+        int decode(int value) {
+            return LU4[value >> 12 & 0xf] << 24 | LU4[value >> 8 & 0xf] << 16 | LU4[value >> 4 & 0xf] << 8 | LU4[value & 0xf];
+        }
+    };
+
+    /**
+     * Also used by {@link Pixmap.Format#Intensity}, which gdx2d stores the same way.
+     */
+    static final SpanWriter ALPHA = new SpanWriter(1) {
+        @Override
+        int encode(int rgba) {
+            return rgba & 0xff;
+        }
+
+        @Override
+        int decode(int value) {
+            return value | 0xffffff00;
+        }
+
+        @Override
+        int get(ByteBuffer pixels, int index) {
+            return pixels.get(index) & 0xff;
+        }
+
+        @Override
+        void put(ByteBuffer pixels, int index, int value) {
+            pixels.put(index, (byte) value);
+        }
+
+        /**
+         * Only alpha is kept, so only alpha is blended, with the same math as {@link ScanlineRasterizer#blend}.
+         */
+        @Override
+        void fillSpan(Pixmap pixmap, int y, int x0, int x1, int rgba) {
+            ByteBuffer pixels = pixmap.getPixels();
+            int index = y * pixmap.getWidth() + x0, end = index + x1 - x0;
+            int srcA = rgba & 0xff;
+            if (pixmap.getBlending() == Pixmap.Blending.None || srcA == 0xff) {
+                for (; index < end; index++) pixels.put(index, (byte) srcA);
+            } else {
+                for (; index < end; index++) {
+                    int dstA = pixels.get(index) & 0xff;
+                    pixels.put(index, (byte) (dstA - dstA * srcA / 255 + srcA));
+                }
+            }
+        }
+    };
+
+    static final SpanWriter LUMINANCE_ALPHA = new ShortWriter() {
+        @Override
+        int encode(int rgba) {
+            int r = rgba >>> 24, g = rgba >>> 16 & 0xff, b = rgba >>> 8 & 0xff;
+            // float and double mixed on purpose: the same expression as to_format() of gdx2d.c, so luminance rounds the same
+            int l = (int) (0.2126f * r + 0.7152 * g + 0.0722 * b) & 0xff;
+            return l << 8 | rgba & 0xff;
+        }
+
+        @Override
+        int decode(int value) {
+            return (value & 0xff00) << 16 | (value & 0xff00) << 8 | value & 0xffff;
+        }
+
+        @Override
+        int get(ByteBuffer pixels, int index) {
+            // gdx2d writes a native short, but reads the first byte as the high one
+            return (pixels.get(index) & 0xff) << 8 | pixels.get(index + 1) & 0xff;
+        }
+    };
+
+    final int bytesPerPixel;
+
+    SpanWriter(int bytesPerPixel) {
+        this.bytesPerPixel = bytesPerPixel;
+    }
+
+    static SpanWriter of(Pixmap.Format format) {
+        switch (format) {
+            case RGBA8888:
+                return RGBA8888;
+            case RGB888:
+                return RGB888;
+            case RGB565:
+                return RGB565;
+            case RGBA4444:
+                return RGBA4444;
+            case LuminanceAlpha:
+                return LUMINANCE_ALPHA;
+            default:
+                return ALPHA;
+        }
+    }
+
+    /**
+     * @return rgba in the format, as stored by {@link #put(ByteBuffer, int, int)}
+     */
+    abstract int encode(int rgba);
+
+    /**
+     * @return value read by {@link #get(ByteBuffer, int)} as RGBA8888
+     */
+    abstract int decode(int value);
+
+    abstract int get(ByteBuffer pixels, int index);
+
+    abstract void put(ByteBuffer pixels, int index, int value);
+
+    /**
+     * Fill pixels in [x0, x1) of row y with color in RGBA8888, blended with {@link ScanlineRasterizer#blend} unless
+     * the color is opaque or the Pixmap's blending is {@link Pixmap.Blending#None}.
+     */
+    void fillSpan(Pixmap pixmap, int y, int x0, int x1, int rgba) {
+        ByteBuffer pixels = pixmap.getPixels();
+        int index = (y * pixmap.getWidth() + x0) * bytesPerPixel, end = index + (x1 - x0) * bytesPerPixel;
+        if (pixmap.getBlending() == Pixmap.Blending.None || (rgba & 0xff) == 0xff) {
+            int value = encode(rgba);
+            for (; index < end; index += bytesPerPixel) put(pixels, index, value);
+        } else {
+            for (; index < end; index += bytesPerPixel) {
+                put(pixels, index, encode(ScanlineRasterizer.blend(rgba, decode(get(pixels, index)))));
+            }
+        }
+    }
+
+    /**
+     * Formats of 16 bits per pixel, stored as native shorts.
+     */
+    abstract static class ShortWriter extends SpanWriter {
+        ShortWriter() {
+            super(2);
+        }
+
+        @Override
+        int get(ByteBuffer pixels, int index) {
+            int first = pixels.get(index) & 0xff, second = pixels.get(index + 1) & 0xff;
+            return LITTLE_ENDIAN ? second << 8 | first : first << 8 | second;
+        }
+
+        @Override
+        void put(ByteBuffer pixels, int index, int value) {
+            pixels.put(index, (byte) (LITTLE_ENDIAN ? value : value >> 8));
+            pixels.put(index + 1, (byte) (LITTLE_ENDIAN ? value >> 8 : value));
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.utils.Null;
+
+/**
+ * Turns the outline of a path into polygons covering its stroke, which are then filled by a {@link ScanlineRasterizer}
+ * like any other shape, with {@link ScanlineRasterizer.FillRule#NONZERO}.
+ * <p>
+ * Every segment becomes a quadrilateral, every join and cap a small polygon, all of the same orientation,
+ * so that overlapping pieces add up instead of cancelling each other. So the cost is linear in stroke length.
+ * <p>
+ * Feed it like a ScanlineRasterizer, in pixels. Call {@link #finish()} at the end.
+ *
+ * @see <a href="https://www.w3.org/TR/SVG11/painting.html#StrokeProperties">Stroke properties</a>
+ */
+public class Stroker implements Flattener.ISegmentConsumer {
+
+    /**
+     * The {@code stroke-linejoin} property.
+     */
+    public enum LineJoin {
+        MITER, ROUND, BEVEL;
+
+        /**
+         * @return {@link #MITER} if value is unknown, which is the default one.
+         */
+        public static LineJoin parse(@Null String value) {
+            if (value != null) {
+                value = value.trim();
+                if (value.equals("round")) return ROUND;
+                if (value.equals("bevel")) return BEVEL;
+            }
+            return MITER;
+        }
+    }
+
+    /**
+     * The {@code stroke-linecap} property.
+     */
+    public enum LineCap {
+        BUTT, ROUND, SQUARE;
+
+        /**
+         * @return {@link #BUTT} if value is unknown, which is the default one.
+         */
+        public static LineCap parse(@Null String value) {
+            if (value != null) {
+                value = value.trim();
+                if (value.equals("round")) return ROUND;
+                if (value.equals("square")) return SQUARE;
+            }
+            return BUTT;
+        }
+    }
+
+    ScanlineRasterizer out;
+    float halfWidth;
+    LineJoin lineJoin;
+    LineCap lineCap;
+    float miterLimit;
+
+    /**
+     * Points of current sub-path, as x0, y0, x1, y1...
+     */
+    float[] points = new float[64];
+    int pointCount = 0;
+    /**
+     * Whether current sub-path has any segment, even of zero length. A lonely moveTo draws nothing.
+     */
+    boolean hasSegment = false;
+
+    /**
+     * The polygon being built, as x0, y0, x1, y1...
+     */
+    float[] polygon = new float[64];
+    int polygonCount = 0;
+
+    /**
+     * @param out        where to put the polygons
+     * @param width      stroke-width, in pixels
+     * @param miterLimit stroke-miterlimit, ratio of miter length to stroke width
+     */
+    public Stroker(ScanlineRasterizer out, float width, LineJoin lineJoin, LineCap lineCap, float miterLimit) {
+        reset(out, width, lineJoin, lineCap, miterLimit);
+    }
+
+    /**
+     * Start over with another stroke, keeping the buffers, so that one Stroker can stroke many paths.
+     *
+     * @return this
+     * @see #Stroker(ScanlineRasterizer, float, LineJoin, LineCap, float)
+     */
+    public Stroker reset(ScanlineRasterizer out, float width, LineJoin lineJoin, LineCap lineCap, float miterLimit) {
+        this.out = out;
+        this.halfWidth = width / 2;
+        this.lineJoin = lineJoin;
+        this.lineCap = lineCap;
+        this.miterLimit = miterLimit;
+        pointCount = 0;
+        polygonCount = 0;
+        hasSegment = false;
+        return this;
+    }
+
+    void trim() {
+        pointCount = 0;
+        polygonCount = 0;
+        hasSegment = false;
+        points = new float[64];
+        polygon = new float[64];
+    }
+
+    public void moveTo(float x, float y) {
+        finish(false);
+        addPoint(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        if (pointCount == 0) addPoint(0, 0);
+        hasSegment = true;
+        float lastX = points[2 * pointCount - 2], lastY = points[2 * pointCount - 1];
+        if (x != lastX || y != lastY) addPoint(x, y);
+    }
+
+    public void quadTo(float x1, float y1, float x, float y) {
+        if (pointCount == 0) addPoint(0, 0);
+        Flattener.quadTo(points[2 * pointCount - 2], points[2 * pointCount - 1], x1, y1, x, y, this);
+    }
+
+    public void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        if (pointCount == 0) addPoint(0, 0);
+        Flattener.cubicTo(points[2 * pointCount - 2], points[2 * pointCount - 1], x1, y1, x2, y2, x, y, this);
+    }
+
+    /**
+     * Close current sub-path. Next segment starts from its first point.
+     */
+    public void close() {
+        if (pointCount == 0) return;
+        float startX = points[0], startY = points[1];
+        hasSegment = true;
+        finish(true);
+        addPoint(startX, startY);
+    }
+
+    /**
+     * Stroke the last sub-path, which is left open.
+     */
+    public void finish() {
+        finish(false);
+    }
+
+    void finish(boolean closed) {
+        int n = pointCount;
+        boolean draw = hasSegment;
+        pointCount = 0;
+        hasSegment = false;
+        if (!draw || halfWidth <= 0) return;
+
+        float[] p = points;
+        if (n == 1) {
+            // zero length sub-path, only caps are drawn
+            dot(p[0], p[1]);
+            return;
+        }
+        if (closed && p[2 * n - 2] == p[0] && p[2 * n - 1] == p[1]) n--;
+        if (n == 1) {
+            dot(p[0], p[1]);
+            return;
+        }
+
+        int segments = closed ? n : n - 1;
+        for (int i = 0; i < segments; i++) {
+            int j = (i + 1) % n;
+            segment(p[2 * i], p[2 * i + 1], p[2 * j], p[2 * j + 1]);
+        }
+        if (closed) {
+            for (int i = 0; i < n; i++) {
+                int a = (i + n - 1) % n, b = (i + 1) % n;
+                join(p[2 * a], p[2 * a + 1], p[2 * i], p[2 * i + 1], p[2 * b], p[2 * b + 1]);
+            }
+        } else {
+            for (int i = 1; i < n - 1; i++) {
+                join(p[2 * i - 2], p[2 * i - 1], p[2 * i], p[2 * i + 1], p[2 * i + 2], p[2 * i + 3]);
+            }
+            cap(p[0], p[1], p[2], p[3]);
+            cap(p[2 * n - 2], p[2 * n - 1], p[2 * n - 4], p[2 * n - 3]);
+        }
+    }
+
+    void segment(float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0, dy = y1 - y0, length = (float) Math.sqrt(dx * dx + dy * dy);
+        float nx = -dy / length * halfWidth, ny = dx / length * halfWidth;
+        addPolygonPoint(x0 + nx, y0 + ny);
+        addPolygonPoint(x1 + nx, y1 + ny);
+        addPolygonPoint(x1 - nx, y1 - ny);
+        addPolygonPoint(x0 - nx, y0 - ny);
+        emitPolygon();
+    }
+
+    /**
+     * Fill the gap on the outer side at (x, y), between segments from (ax, ay) and to (bx, by).
+     */
+    void join(float ax, float ay, float x, float y, float bx, float by) {
+        float d0x = x - ax, d0y = y - ay, d1x = bx - x, d1y = by - y;
+        float l0 = (float) Math.sqrt(d0x * d0x + d0y * d0y), l1 = (float) Math.sqrt(d1x * d1x + d1y * d1y);
+        d0x /= l0;
+        d0y /= l0;
+        d1x /= l1;
+        d1y /= l1;
+        float cross = d0x * d1y - d0y * d1x, dot = d0x * d1x + d0y * d1y;
+        if (Math.abs(cross) < 1e-6f && dot > 0) return; // straight
+
+        // normals on the outer side
+        float side = cross > 0 ? -halfWidth : halfWidth;
+        float o0x = -d0y * side, o0y = d0x * side, o1x = -d1y * side, o1y = d1x * side;
+        addPolygonPoint(x, y);
+        addPolygonPoint(x + o0x, y + o0y);
+        switch (lineJoin) {
+            case MITER: {
+                // miter length / stroke width = 1 / sin(theta / 2) = 1 / cos(turn / 2)
+                float cosHalfTurn = (float) Math.sqrt((1 + dot) / 2);
+                if (cosHalfTurn > 1e-6f && 1 / cosHalfTurn <= miterLimit) {
+                    float mx = o0x + o1x, my = o0y + o1y, ml = (float) Math.sqrt(mx * mx + my * my);
+                    float k = halfWidth / cosHalfTurn / ml;
+                    addPolygonPoint(x + mx * k, y + my * k);
+                }
+                break;
+            }
+            case ROUND: {
+                float start = (float) Math.atan2(o0y, o0x);
+                float sweep = (float) Math.atan2(o0x * o1y - o0y * o1x, o0x * o1x + o0y * o1y);
+                addArc(x, y, start, sweep);
+                break;
+            }
+            default:
+                break;
+        }
+        addPolygonPoint(x + o1x, y + o1y);
+        emitPolygon();
+    }
+
+    /**
+     * Cap at the end (x, y) of a segment coming from (fromX, fromY).
+     */
+    void cap(float x, float y, float fromX, float fromY) {
+        float dx = x - fromX, dy = y - fromY, length = (float) Math.sqrt(dx * dx + dy * dy);
+        dx = dx / length * halfWidth;
+        dy = dy / length * halfWidth;
+        float nx = -dy, ny = dx;
+        switch (lineCap) {
+            case SQUARE:
+                addPolygonPoint(x + nx, y + ny);
+                addPolygonPoint(x + nx + dx, y + ny + dy);
+                addPolygonPoint(x - nx + dx, y - ny + dy);
+                addPolygonPoint(x - nx, y - ny);
+                emitPolygon();
+                break;
+            case ROUND:
+                // half circle from +n to -n, through the direction
+                addArc(x, y, (float) Math.atan2(ny, nx), (float) -Math.PI);
+                emitPolygon();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Caps of a sub-path of zero length, which has no direction.
+     */
+    void dot(float x, float y) {
+        switch (lineCap) {
+            case SQUARE:
+                addPolygonPoint(x - halfWidth, y - halfWidth);
+                addPolygonPoint(x + halfWidth, y - halfWidth);
+                addPolygonPoint(x + halfWidth, y + halfWidth);
+                addPolygonPoint(x - halfWidth, y + halfWidth);
+                emitPolygon();
+                break;
+            case ROUND:
+                addArc(x, y, 0, (float) (2 * Math.PI));
+                emitPolygon();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Add points on the circle of radius halfWidth, from angle start to start + sweep,
+     * close enough to be within {@link Flattener#tolerance}.
+     */
+    void addArc(float x, float y, float start, float sweep) {
+        double step = halfWidth <= Flattener.tolerance ? Math.PI / 2 : 2 * Math.acos(1 - Flattener.tolerance / halfWidth);
+        int steps = Math.max(1, Math.min(Flattener.maxSegments, (int) Math.ceil(Math.abs(sweep) / step)));
+        for (int i = 0; i <= steps; i++) {
+            double angle = start + sweep * i / steps;
+            addPolygonPoint(x + halfWidth * (float) Math.cos(angle), y + halfWidth * (float) Math.sin(angle));
+        }
+    }
+
+    void addPoint(float x, float y) {
+        if (2 * pointCount + 2 > points.length) {
+            float[] tmp = new float[points.length * 2];
+            System.arraycopy(points, 0, tmp, 0, 2 * pointCount);
+            points = tmp;
+        }
+        points[2 * pointCount] = x;
+        points[2 * pointCount + 1] = y;
+        pointCount++;
+    }
+
+    void addPolygonPoint(float x, float y) {
+        if (polygonCount + 2 > polygon.length) {
+            float[] tmp = new float[polygon.length * 2];
+            System.arraycopy(polygon, 0, tmp, 0, polygonCount);
+            polygon = tmp;
+        }
+        polygon[polygonCount++] = x;
+        polygon[polygonCount++] = y;
+    }
+
+    /**
+     * Put the polygon into {@link #out}, turned so that every polygon has the same orientation.
+     */
+    void emitPolygon() {
+        int count = polygonCount / 2;
+        polygonCount = 0;
+        if (count < 3) return;
+        float area = 0;
+        for (int i = 0, j = count - 1; i < count; j = i++) {
+            area += polygon[2 * j] * polygon[2 * i + 1] - polygon[2 * i] * polygon[2 * j + 1];
+        }
+        if (area == 0) return;
+        if (area > 0) {
+            out.moveTo(polygon[0], polygon[1]);
+            for (int i = 1; i < count; i++) out.lineTo(polygon[2 * i], polygon[2 * i + 1]);
+        } else {
+            out.moveTo(polygon[2 * count - 2], polygon[2 * count - 1]);
+            for (int i = count - 2; i >= 0; i--) out.lineTo(polygon[2 * i], polygon[2 * i + 1]);
+        }
+        out.close();
+    }
+}
@@ -2,31 +2,40 @@ package io.github.fxzjshm.gdx.svg2pixmap;
 
 import com.badlogic.gdx.Application;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Null;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.XmlReader;
-import com.badlogic.gdx.utils.async.ThreadUtils;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.io.Reader;
 
 public class Svg2Pixmap {
     /**
      * Generate shapes on a (width * generateScale) x (height * generateScale) Pixmap, then resize to the original size.
      * This seems to be called super-sampling.
-     * TODO use "signed distance field" method
+     * To render once for any size instead, see {@link DistanceField}.
      * This affects {@link Svg2Pixmap#svg2Pixmap} but not {@link Svg2Pixmap#path2Pixmap}.
+     * Only used when {@link Svg2Pixmap#antiAliasing} is {@link AntiAliasing#SUPER_SAMPLING}.
      */
     public static int generateScale = 2;
 
+    /**
+     * How to smooth edges of shapes.
+     * This affects both {@link Svg2Pixmap#svg2Pixmap} and {@link Svg2Pixmap#path2Pixmap}.
+     */
+    public static AntiAliasing antiAliasing = AntiAliasing.SUPER_SAMPLING;
+
     public static Color defaultColor = Color.BLACK;
 
+    /**
+     * Told about every stage of rendering, e.g. to find out why a render is slow or which elements are dropped.
+     * Null by default, which costs nothing.
+     */
+    @Null
+    public static IRenderListener renderListener = null;
+
     /**
      * Convert a SVG {@code <path />} element into a {@link Pixmap}.
      * Will scale if (width != {@link Pixmap#getWidth()} || height != {@link Pixmap#getHeight()}).
@@ -39,169 +48,172 @@ public class Svg2Pixmap {
      * @param strokeWidth width to draw. WARNING: WILL BE SCALED if (width != {@link Pixmap#getWidth()} || height != {@link Pixmap#getHeight()}).
      * @param pixmap      the pixmap to draw the path in.
      * @return Drawn pixmap.
+     * @see Svg2Pixmap#path2Pixmap(int, int, String, Color, ScanlineRasterizer.FillRule, Color, double, Pixmap)
      */
     public static Pixmap path2Pixmap(int width, int height, String d, Color fill, Color stroke, double strokeWidth, Pixmap pixmap) {
-        checkGWT();
+        return path2Pixmap(width, height, d, fill, ScanlineRasterizer.FillRule.NONZERO, stroke, strokeWidth, pixmap);
+    }
 
-        StringTokenizer stringTokenizer = new StringTokenizer(H.splitMixedTokens(d));
-        int strokeRadius = (int) Math.round(strokeWidth * Math.sqrt(1.0 * (pixmap.getWidth() * pixmap.getHeight()) / (width * height)) / 2);
-
-        Vector2 currentPosition = new Vector2(0, 0);// Current position. Used by commands.
-        Vector2 initialPoint = new Vector2(0, 0);// Current position. Used by command 'M'.
-        Vector2 lastCPoint = null; // Last control point of last 'C' or 'S' command.
-        Vector2 lastQPoint = null; // Last control point of last 'Q' or 'T' command.
-        boolean[][] border = new boolean[pixmap.getWidth()][pixmap.getHeight()]; // int[][] to save border position, assuming initial value are all false
-
-        char lastCommand = 0; // Last command.
-        LinkedList<String> params = new LinkedList<String>(); // Real parameters.
-        while (stringTokenizer.hasMoreTokens()) {
-            String tmp; // Next token. Maybe a command or an argument.
-            char command; //  The real command.
-            int paramAmount = 0; // The amount of parameters to read.
-
-            try {
-                tmp = stringTokenizer.nextToken();
-            } catch (NoSuchElementException nsee) { // No more tokens.
-                break;
-            }
+    /**
+     * Convert a SVG {@code <path />} element into a {@link Pixmap}.
+     * Will scale if (width != {@link Pixmap#getWidth()} || height != {@link Pixmap#getHeight()}).
+     *
+     * @param width       the origin width of the SVG file, maybe defined by viewbox
+     * @param height      the origin height of the SVG file, maybe defined by viewbox
+     * @param d           the property d of the origin path element
+     * @param fill        the color to fill in the shape.
+     * @param fillRule    the property fill-rule, decides which part of the shape is inside
+     * @param stroke      the color of th path
+     * @param strokeWidth width to draw. WARNING: WILL BE SCALED if (width != {@link Pixmap#getWidth()} || height != {@link Pixmap#getHeight()}).
+     * @param pixmap      the pixmap to draw the path in.
+     * @return Drawn pixmap.
+     */
+    public static Pixmap path2Pixmap(int width, int height, String d, Color fill, ScanlineRasterizer.FillRule fillRule, Color stroke, double strokeWidth, Pixmap pixmap) {
+        checkGWT();
 
-            if (1 == tmp.length() && Character.isLetter(tmp.charAt(0))/* That is, tmp is a command.*/) {
-                lastCommand = command = tmp.charAt(0);
-            } else {
-                // tmp is not a command.
-                if (lastCommand != 0) {
-                    command = lastCommand;
-                    // tmp is a parameter of last command.
-                    params.add(tmp);
-                    paramAmount--; //Have loaded one.
-                } else throw new IllegalArgumentException("No command at the beginning ?");
-            }
-            paramAmount += H.getParamAmount(command);
-            for (int i = 0; i < paramAmount; i++) {
-                params.add(stringTokenizer.nextToken());
-            }
+        drawPath(SvgPath.parse(d), 0, 0, 1f * pixmap.getWidth() / width, 1f * pixmap.getHeight() / height, fill, fillRule, stroke, strokeWidth, pixmap);
+        return pixmap;
+    }
 
-            // convert relative positions to absolute positions
-            H.r2a(command, params, new Vector2(currentPosition.x / pixmap.getWidth() * width, currentPosition.y / pixmap.getHeight() * height));
+    /**
+     * Draw a compiled path. A point (x, y) in the path is drawn at ((x - originX) * scaleX, (y - originY) * scaleY).
+     *
+     * @param strokeWidth width in user units, will be scaled.
+     * @see Svg2Pixmap#drawPath(SvgPath, float, float, float, float, Color, ScanlineRasterizer.FillRule, Color, double, Stroker.LineJoin, Stroker.LineCap, float, Pixmap)
+     */
+    public static void drawPath(SvgPath path, float originX, float originY, float scaleX, float scaleY,
+                                Color fill, ScanlineRasterizer.FillRule fillRule, Color stroke, double strokeWidth, Pixmap pixmap) {
+        drawPath(path, originX, originY, scaleX, scaleY, fill, fillRule, stroke, strokeWidth,
+                Stroker.LineJoin.MITER, Stroker.LineCap.BUTT, 4, pixmap);
+    }
 
-            char newCommand = Character.toUpperCase(command);
-            if (newCommand == 'M') {
-                initialPoint.x = currentPosition.x = (Float.parseFloat(params.get(0))) / width * pixmap.getWidth();
-                initialPoint.y = currentPosition.y = (Float.parseFloat(params.get(1))) / height * pixmap.getHeight();
-            }
-            if (newCommand == 'Z') {
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, initialPoint}, stroke, strokeRadius, border);
-            }
-            if (newCommand == 'L') {
-                float x2 = Float.parseFloat(params.get(0)) / width * pixmap.getWidth(), y2 = Float.parseFloat(params.get(1)) / height * pixmap.getHeight();
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, new Vector2(x2, y2)}, stroke, strokeRadius, border);
+    /**
+     * Draw a compiled path. A point (x, y) in the path is drawn at ((x - originX) * scaleX, (y - originY) * scaleY).
+     * The stroke is turned into polygons by {@link Stroker} and filled on top of the fill.
+     *
+     * @param strokeWidth width in user units, will be scaled.
+     * @param miterLimit  the property stroke-miterlimit
+     */
+    public static void drawPath(SvgPath path, float originX, float originY, float scaleX, float scaleY,
+                                Color fill, ScanlineRasterizer.FillRule fillRule, Color stroke, double strokeWidth,
+                                Stroker.LineJoin lineJoin, Stroker.LineCap lineCap, float miterLimit, Pixmap pixmap) {
+        drawPath(path, originX, originY, scaleX, scaleY, fill, fillRule, stroke, strokeWidth, lineJoin, lineCap, miterLimit,
+                pixmap, 0, 0, pixmap.getWidth(), pixmap.getHeight());
+    }
 
-                currentPosition.x = x2;
-                currentPosition.y = y2;
-            }
-            if (newCommand == 'H') {
-                float x2 = Float.parseFloat(params.get(0)) / width * pixmap.getWidth();
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, new Vector2(x2, currentPosition.y)}, stroke, strokeRadius, border);
+    /**
+     * Same as above, but only pixels inside the clip rectangle are drawn, e.g. a region of an atlas.
+     *
+     * @see ScanlineRasterizer#setClip(int, int, int, int)
+     */
+    public static void drawPath(SvgPath path, float originX, float originY, float scaleX, float scaleY,
+                                Color fill, ScanlineRasterizer.FillRule fillRule, Color stroke, double strokeWidth,
+                                Stroker.LineJoin lineJoin, Stroker.LineCap lineCap, float miterLimit,
+                                Pixmap pixmap, int clipX, int clipY, int clipWidth, int clipHeight) {
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            drawPath(path, originX, originY, scaleX, scaleY, fill, fillRule, stroke, strokeWidth, lineJoin, lineCap, miterLimit,
+                    pixmap, clipX, clipY, clipWidth, clipHeight, arena, antiAliasing == AntiAliasing.COVERAGE);
+        } finally {
+            arena.release();
+        }
+    }
 
-                currentPosition.x = x2;
-            }
-            if (newCommand == 'V') {
-                float y2 = Float.parseFloat(params.get(0)) / height * pixmap.getHeight();
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, new Vector2(currentPosition.x, y2)}, stroke, strokeRadius, border);
+    /**
+     * Same as above, reusing the rasterizers and the stroker of arena,
+     * so that drawing many paths does not allocate buffers for each of them.
+     *
+     * @param coverage fill with coverage if true, aliased otherwise
+     */
+    static void drawPath(SvgPath path, float originX, float originY, float scaleX, float scaleY,
+                         Color fill, ScanlineRasterizer.FillRule fillRule, Color stroke, double strokeWidth,
+                         Stroker.LineJoin lineJoin, Stroker.LineCap lineCap, float miterLimit,
+                         Pixmap pixmap, int clipX, int clipY, int clipWidth, int clipHeight,
+                         ScratchArena arena, boolean coverage) {
+        // non-uniform scaling would need an elliptic pen, use the average instead
+        float scaledStrokeWidth = (float) (strokeWidth * Math.sqrt(Math.abs(scaleX * scaleY)));
+        boolean doFill = fill != null && !fill.equals(Color.CLEAR),
+                doStroke = stroke != null && !stroke.equals(Color.CLEAR) && scaledStrokeWidth > 0;
+
+        IRenderListener listener = renderListener;
+        long time = listener == null ? 0 : TimeUtils.nanoTime();
+
+        ScanlineRasterizer rasterizer = arena.rasterizer, strokeRasterizer = arena.strokeRasterizer;
+        rasterizer.reset(); // Collects the shape to fill.
+        strokeRasterizer.reset(); // Collects outline of the stroke.
+        Stroker stroker = doStroke ? arena.stroker(strokeRasterizer, scaledStrokeWidth, lineJoin, lineCap, miterLimit) : null;
+        flattenPath(path, originX, originY, scaleX, scaleY, rasterizer, stroker);
+
+        if (listener != null) time = stage(listener, IRenderListener.Stage.FLATTEN, time, rasterizer.getEdgeCount());
+
+        // Fill first, then stroke on it.
+        if (doFill) {
+            rasterizer.setClip(clipX, clipY, clipWidth, clipHeight);
+            fill(rasterizer, pixmap, fill, fillRule, coverage);
+            if (listener != null) time = stage(listener, IRenderListener.Stage.FILL, time, rasterizer.getEdgeCount());
+        }
+        if (doStroke) {
+            strokeRasterizer.setClip(clipX, clipY, clipWidth, clipHeight);
+            fill(strokeRasterizer, pixmap, stroke, ScanlineRasterizer.FillRule.NONZERO, coverage);
+            if (listener != null) stage(listener, IRenderListener.Stage.STROKE, time, strokeRasterizer.getEdgeCount());
+        }
+    }
 
-                currentPosition.y = y2;
-            }
-            if (newCommand == 'C') {
-                float x1 = Float.parseFloat(params.get(0)) / width * pixmap.getWidth(), y1 = Float.parseFloat(params.get(1)) / height * pixmap.getHeight();
-                float x2 = Float.parseFloat(params.get(2)) / width * pixmap.getWidth(), y2 = Float.parseFloat(params.get(3)) / height * pixmap.getHeight();
-                float x = Float.parseFloat(params.get(4)) / width * pixmap.getWidth(), y = Float.parseFloat(params.get(5)) / height * pixmap.getHeight();
-                lastCPoint = new Vector2(x2, y2);
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, new Vector2(x1, y1), lastCPoint, new Vector2(x, y)}, stroke, strokeRadius, border);
-
-                currentPosition.x = x;
-                currentPosition.y = y;
-            }
-            if (newCommand == 'S') {
-                float x2 = Float.parseFloat(params.get(0)) / width * pixmap.getWidth(), y2 = Float.parseFloat(params.get(1)) / height * pixmap.getHeight();
-                float x = Float.parseFloat(params.get(2)) / width * pixmap.getWidth(), y = Float.parseFloat(params.get(3)) / height * pixmap.getHeight();
-                float x1, y1;
-                if (lastCPoint != null) {
-                    x1 = 2 * currentPosition.x - lastCPoint.x;
-                    y1 = 2 * currentPosition.y - lastCPoint.y;
-                } else {
-                    x1 = x2;
-                    y1 = y2;
+    /**
+     * Feed path into rasterizer, and into stroker if not null, mapping (originX, originY) to (0, 0) of the Pixmap.
+     * The stroker is finished at the end.
+     */
+    static void flattenPath(SvgPath path, float originX, float originY, float scaleX, float scaleY,
+                            ScanlineRasterizer rasterizer, @Null Stroker stroker) {
+        float[] coords = path.coords;
+        for (int i = 0, j = 0; i < path.verbCount; i++) {
+            switch (path.verbs[i]) {
+                case SvgPath.MOVE: {
+                    float x = (coords[j++] - originX) * scaleX, y = (coords[j++] - originY) * scaleY;
+                    rasterizer.moveTo(x, y);
+                    if (stroker != null) stroker.moveTo(x, y);
+                    break;
                 }
-                lastCPoint = new Vector2(x2, y2);
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, new Vector2(x1, y1), lastCPoint, new Vector2(x, y)}, stroke, strokeRadius, border);
-
-                currentPosition.x = x;
-                currentPosition.y = y;
-            }
-            if (newCommand == 'Q') {
-                float x1 = Float.parseFloat(params.get(0)) / width * pixmap.getWidth(), y1 = Float.parseFloat(params.get(1)) / height * pixmap.getHeight();
-                float x = Float.parseFloat(params.get(2)) / width * pixmap.getWidth(), y = Float.parseFloat(params.get(3)) / height * pixmap.getHeight();
-                lastQPoint = new Vector2(x1, y1);
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, lastQPoint, new Vector2(x, y)}, stroke, strokeRadius, border);
-
-                currentPosition.x = x;
-                currentPosition.y = y;
-            }
-            if (newCommand == 'T') {
-                float x = Float.parseFloat(params.get(0)) / width * pixmap.getWidth(), y = Float.parseFloat(params.get(1)) / height * pixmap.getHeight();
-                float x1, y1;
-                if (lastQPoint != null) {
-                    x1 = 2 * currentPosition.x - lastQPoint.x;
-                    y1 = 2 * currentPosition.y - lastQPoint.y;
-                } else {
-                    x1 = x;
-                    y1 = y;
+                case SvgPath.LINE: {
+                    float x = (coords[j++] - originX) * scaleX, y = (coords[j++] - originY) * scaleY;
+                    rasterizer.lineTo(x, y);
+                    if (stroker != null) stroker.lineTo(x, y);
+                    break;
                 }
-                lastQPoint = new Vector2(x1, y1);
-                H.drawCurve(pixmap, new Vector2[]{currentPosition, lastQPoint, new Vector2(x, y)}, stroke, strokeRadius, border);
-
-                currentPosition.x = x;
-                currentPosition.y = y;
-            }
-            if (newCommand == 'A') {
-                float rx = Float.parseFloat(params.get(0)) / width * pixmap.getWidth(),
-                        ry = Float.parseFloat(params.get(1)) / height * pixmap.getHeight(),
-                        x_axis_rotation = Float.parseFloat(params.get(2)),
-                        x = Float.parseFloat(params.get(5)) / width * pixmap.getWidth(),
-                        y = Float.parseFloat(params.get(6)) / height * pixmap.getHeight();
-                int large_arc_flag = Math.abs(Integer.parseInt(params.get(3))),
-                        sweep_flag = Math.abs(Integer.parseInt(params.get(4)));
-                List<Vector2[]> curves = SvgArcToCubicBezier.arcToBezier(currentPosition.x, currentPosition.y, x, y, rx, ry, x_axis_rotation, large_arc_flag, sweep_flag);
-                for (Vector2[] curve : curves) {
-                    /*
-                    String cmd = "M " + currentPosition.x + " " + currentPosition.y + " " +
-                            "C " + curve[0].x + " " + curve[0].y + " " + curve[1].x + " " + curve[1].y + " " + curve[2].x + " " + curve[2].y + " ";
-                    path2Pixmap(pixmap.getWidth(), pixmap.getHeight(), cmd, fill, stroke, strokeRadius, pixmap);
-                    */
-                    ArrayList<Vector2> points = new ArrayList<>(4);
-                    points.add(currentPosition);
-                    points.addAll(Arrays.asList(curve));
-                    H.drawCurve(pixmap, points.toArray(new Vector2[4]), stroke, strokeRadius, border);
-                    currentPosition.x = curve[2].x;
-                    currentPosition.y = curve[2].y;
+                case SvgPath.CUBIC: {
+                    float x1 = (coords[j++] - originX) * scaleX, y1 = (coords[j++] - originY) * scaleY;
+                    float x2 = (coords[j++] - originX) * scaleX, y2 = (coords[j++] - originY) * scaleY;
+                    float x = (coords[j++] - originX) * scaleX, y = (coords[j++] - originY) * scaleY;
+                    rasterizer.cubicTo(x1, y1, x2, y2, x, y);
+                    if (stroker != null) stroker.cubicTo(x1, y1, x2, y2, x, y);
+                    break;
                 }
-
-                currentPosition.x = x;
-                currentPosition.y = y;
+                case SvgPath.CLOSE:
+                    rasterizer.close();
+                    if (stroker != null) stroker.close();
+                    break;
             }
-
-            // Clear useless control points
-            if (newCommand != 'Q' && newCommand != 'T') lastQPoint = null;
-            if (newCommand != 'C' && newCommand != 'S') lastCPoint = null;
-
-            params.clear();
         }
+        if (stroker != null) stroker.finish();
+    }
 
-        if (fill != null && !fill.equals(Color.CLEAR)) {
-            H.fillColor(pixmap, border, fill);
-        }
+    /**
+     * Report a stage started at time.
+     *
+     * @return now, i.e. when next stage starts.
+     */
+    static long stage(IRenderListener listener, IRenderListener.Stage stage, long time, long count) {
+        long now = TimeUtils.nanoTime();
+        listener.onStage(stage, now - time, count);
+        return now;
+    }
 
-        return pixmap;
+    static void fill(ScanlineRasterizer rasterizer, Pixmap pixmap, Color color, ScanlineRasterizer.FillRule fillRule, boolean coverage) {
+        if (coverage) {
+            rasterizer.fillCoverage(pixmap, color, fillRule);
+        } else {
+            rasterizer.fill(pixmap, color, fillRule);
+        }
     }
 
     /**
@@ -212,47 +224,61 @@ public class Svg2Pixmap {
      * @param height      The height of Pixmap.
      */
     public static Pixmap svg2Pixmap(String fileContent, int width, int height) {
-        checkGWT();
+        return svg2Pixmap(SvgDocument.parse(fileContent), width, height);
+    }
 
-        if (generateScale == 1) return svg2PixmapDirectDraw(fileContent, width, height);
-
-        final int scaledWidth = width * generateScale, scaledHeight = height * generateScale,
-                scale2 = generateScale * generateScale;
-        final Pixmap scaledPixmap = svg2PixmapDirectDraw(fileContent, scaledWidth, scaledHeight),
-                pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-        AtomicInteger count = new AtomicInteger(0);
-        for (int x = 0; x < width; x++) {
-            final int x0 = x;
-            H.asyncExecutor.submit(() -> {
-                Color tmpColor = new Color();
-                float r, g, b, a;
-                for (int y = 0; y < height; y++) {
-                    final int y0 = y;
-                    r = g = b = a = 0;
-                    for (int i = 0; i < generateScale; i++) {
-                        for (int j = 0; j < generateScale; j++) {
-                            int color = scaledPixmap.getPixel(x0 * generateScale + i, y0 * generateScale + j);
-                            Color.rgba8888ToColor(tmpColor, color);
-                            r += tmpColor.r;
-                            g += tmpColor.g;
-                            b += tmpColor.b;
-                            a += tmpColor.a;
-                        }
-                    }
-                    r /= scale2;
-                    g /= scale2;
-                    b /= scale2;
-                    a /= scale2;
-                    pixmap.drawPixel(x0, y0, Color.rgba8888(r, g, b, a));
-                }
-                count.incrementAndGet();
-                return null;
-            });
-        }
-        while (count.get() < width) {
-            ThreadUtils.yield();
+    /**
+     * Render a parsed SVG file to a Pixmap.
+     * Parse once with {@link SvgDocument#parse(String)} and call this for every size needed.
+     *
+     * @param width  The width to Pixmap.
+     * @param height The height of Pixmap.
+     */
+    public static Pixmap svg2Pixmap(SvgDocument document, int width, int height) {
+        checkGWT();
+        IRenderListener listener = renderListener;
+        long start = listener == null ? 0 : TimeUtils.nanoTime();
+
+        Pixmap pixmap;
+        if (generateScale == 1 || antiAliasing == AntiAliasing.COVERAGE) {
+            pixmap = svg2PixmapDirectDraw(document, width, height);
+        } else {
+            final int scaledWidth = width * generateScale, scaledHeight = height * generateScale;
+            final Pixmap scaledPixmap = svg2PixmapDirectDraw(document, scaledWidth, scaledHeight);
+            pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+            if (listener != null) listener.onAllocated(PixmapCache.sizeOf(pixmap));
+            long time = listener == null ? 0 : TimeUtils.nanoTime();
+            final Pixmap result = pixmap;
+            final int scale = generateScale;
+            Parallel.forRows(height, (yStart, yEnd) -> H.downsample(scaledPixmap, result, scale, yStart, yEnd));
+            scaledPixmap.dispose();
+            if (listener != null) stage(listener, IRenderListener.Stage.DOWNSAMPLE, time, (long) scaledWidth * scaledHeight);
         }
-        scaledPixmap.dispose();
+        if (listener != null) stage(listener, IRenderListener.Stage.RENDER, start, (long) width * height);
+        return pixmap;
+    }
+
+    /**
+     * Parse a SVG file to an alpha mask, for single-color icons tinted when drawn.
+     *
+     * @see AlphaMask
+     */
+    public static Pixmap svg2Mask(String fileContent, int width, int height) {
+        return svg2Mask(SvgDocument.parse(fileContent), width, height);
+    }
+
+    /**
+     * Render a parsed SVG file to a {@link Pixmap.Format#Alpha} Pixmap of how much every pixel is covered,
+     * ignoring colors of fills and strokes.
+     *
+     * @see AlphaMask
+     */
+    public static Pixmap svg2Mask(SvgDocument document, int width, int height) {
+        checkGWT();
+        IRenderListener listener = renderListener;
+        long start = listener == null ? 0 : TimeUtils.nanoTime();
+        Pixmap pixmap = AlphaMask.generate(document, width, height);
+        if (listener != null) stage(listener, IRenderListener.Stage.RENDER, start, (long) width * height);
         return pixmap;
     }
 
@@ -280,72 +306,103 @@ public class Svg2Pixmap {
     // @formatter:on
 
     public static Pixmap svg2PixmapDirectDraw(String fileContent, int width, int height) {
-        XmlReader reader = new XmlReader();
-        XmlReader.Element root = reader.parse(fileContent);
-
-        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-        for (int i = 0; i < root.getChildCount(); i++) {
-            XmlReader.Element child = root.getChild(i);
-            try {
-                String name = child.getName();
-                switch (name) {
-                    case "path":
-                        path(child, pixmap);
-                        break;
-                    case "circle":
-                        circle(child, pixmap);
-                        break;
-                    case "ellipse":
-                        ellipse(child, pixmap);
-                        break;
-                    default:
-                        Gdx.app.error("svg2PixmapDirectDraw", "Unsupported element " + name);
-                }
-            } catch (Exception e) { //TODO Dangerous here !!!
-                Gdx.app.debug("Svg2Pixmap", "File content:\n" + fileContent + "\nError stacktrace: ", e);
-            }
+        return svg2PixmapDirectDraw(SvgDocument.parse(fileContent), width, height);
+    }
+
+    /**
+     * Draw a SVG file from reader without keeping it: every element is drawn as soon as it is read, then forgotten.
+     * Useful for very large files, as neither the XML tree nor the compiled document is kept.
+     * Not anti-aliased unless {@link #antiAliasing} is {@link AntiAliasing#COVERAGE}, like other direct draws.
+     *
+     * @param reader closed at the end
+     * @see SvgDocument#parse(Reader)
+     */
+    public static Pixmap svg2PixmapDirectDraw(Reader reader, int width, int height) {
+        SvgDocument.Drawer drawer = new SvgDocument.Drawer(width, height);
+        SvgStreamReader streamReader = new SvgStreamReader(drawer);
+        try {
+            streamReader.parse(reader);
+        } catch (RuntimeException e) {
+            if (drawer.pixmap != null) drawer.pixmap.dispose();
+            throw e;
         }
+        return drawer.finishDrawing(streamReader.charCount);
+    }
+
+    /**
+     * Same as above, reading file in UTF-8.
+     */
+    public static Pixmap svg2PixmapDirectDraw(FileHandle file, int width, int height) {
+        return svg2PixmapDirectDraw(file.reader("UTF-8"), width, height);
+    }
+
+    /**
+     * Parse a SVG file without building its XML tree, then render it like {@link #svg2Pixmap(SvgDocument, int, int)}.
+     *
+     * @see SvgDocument#parse(FileHandle)
+     */
+    public static Pixmap svg2Pixmap(FileHandle file, int width, int height) {
+        return svg2Pixmap(SvgDocument.parse(file), width, height);
+    }
+
+    public static Pixmap svg2PixmapDirectDraw(SvgDocument document, int width, int height) {
+        return svg2PixmapDirectDraw(document, width, height, Pixmap.Format.RGBA8888);
+    }
+
+    /**
+     * Draw straight into a new Pixmap of format, e.g. {@link Pixmap.Format#RGBA4444} or {@link Pixmap.Format#RGB565}
+     * to save memory, without rendering in RGBA8888 and converting afterwards.
+     * Best with {@link AntiAliasing#COVERAGE}, as there is no downsampling.
+     */
+    public static Pixmap svg2PixmapDirectDraw(SvgDocument document, int width, int height, Pixmap.Format format) {
+        Pixmap pixmap = new Pixmap(width, height, format);
+        IRenderListener listener = renderListener;
+        if (listener != null) listener.onAllocated(PixmapCache.sizeOf(pixmap));
+        document.draw(pixmap);
         return pixmap;
     }
 
+    /**
+     * Parse a SVG file to a Pixmap of its own size.
+     */
     public static Pixmap svg2Pixmap(String fileContent) {
-        XmlReader reader = new XmlReader();
-        XmlReader.Element root = reader.parse(fileContent);
-        int width = Integer.parseInt(root.getAttribute("width"));
-        int height = Integer.parseInt(root.getAttribute("height"));
-        return svg2Pixmap(fileContent, width, height);
+        SvgDocument document = SvgDocument.parse(fileContent);
+        return svg2Pixmap(document, Math.round(document.width), Math.round(document.height));
     }
 
     public static void path(XmlReader.Element element, Pixmap pixmap) {
-        H.SVGBasicInfo info = new H.SVGBasicInfo(element);
-        String d = H.getAttribute(element, "d");
-
-        path2Pixmap(info.width, info.height, d, info.fill, info.stroke, info.strokeWidth, pixmap);
+        drawElement(element, pixmap);
     }
 
     public static void circle(XmlReader.Element element, Pixmap pixmap) {
-        H.SVGBasicInfo info = new H.SVGBasicInfo(element);
-        double cx = Double.parseDouble(H.getAttribute(element, "cx")),
-                cy = Double.parseDouble(H.getAttribute(element, "cy")),
-                r = Double.parseDouble(H.getAttribute(element, "r"));
-
-        String d = "M " + (cx - r) + " " + cy + " " +
-                "A " + r + " " + r + " 0 1 1 " + (cx + r) + " " + cy + " " +
-                "A " + r + " " + r + " 0 1 1 " + (cx - r) + " " + cy + " ";
-        path2Pixmap(info.width, info.height, d, info.fill, info.stroke, info.strokeWidth, pixmap);
+        drawElement(element, pixmap);
     }
 
     public static void ellipse(XmlReader.Element element, Pixmap pixmap) {
-        H.SVGBasicInfo info = new H.SVGBasicInfo(element);
-        double cx = Double.parseDouble(H.getAttribute(element, "cx")),
-                cy = Double.parseDouble(H.getAttribute(element, "cy")),
-                rx = Double.parseDouble(H.getAttribute(element, "rx")),
-                ry = Double.parseDouble(H.getAttribute(element, "ry"));
+        drawElement(element, pixmap);
+    }
+
+    public static void rect(XmlReader.Element element, Pixmap pixmap) {
+        drawElement(element, pixmap);
+    }
+
+    public static void line(XmlReader.Element element, Pixmap pixmap) {
+        drawElement(element, pixmap);
+    }
+
+    public static void polyline(XmlReader.Element element, Pixmap pixmap) {
+        drawElement(element, pixmap);
+    }
+
+    public static void polygon(XmlReader.Element element, Pixmap pixmap) {
+        drawElement(element, pixmap);
+    }
 
-        String d = "M " + (cx - rx) + " " + cy + " " +
-                "A " + rx + " " + ry + " 0 1 1 " + (cx + rx) + " " + cy + " " +
-                "A " + rx + " " + ry + " 0 1 1 " + (cx - rx) + " " + cy + " ";
-        path2Pixmap(info.width, info.height, d, info.fill, info.stroke, info.strokeWidth, pixmap);
+    static void drawElement(XmlReader.Element element, Pixmap pixmap) {
+        SvgContext context = SvgContext.of(element);
+        SvgDocument.Shape shape = SvgDocument.compile(element, context);
+        if (shape == null) return;
+        shape.draw(pixmap, context.viewBoxX, context.viewBoxY, pixmap.getWidth() / context.viewBoxWidth, pixmap.getHeight() / context.viewBoxHeight);
     }
 
     protected static void checkGWT() {
@@ -354,6 +411,22 @@ public class Svg2Pixmap {
         }
     }
 
+    /**
+     * @see Svg2Pixmap#antiAliasing
+     */
+    public enum AntiAliasing {
+        /**
+         * Draw on a Pixmap {@link Svg2Pixmap#generateScale} times larger, then resize it down.
+         * Costs generateScale^2 times of memory and time, kept as the reference.
+         */
+        SUPER_SAMPLING,
+        /**
+         * Compute how much of each pixel is covered by the shape, in one pass at the original size.
+         * See {@link ScanlineRasterizer#fillCoverage}.
+         */
+        COVERAGE
+    }
+
     /**
      * @see Svg2Pixmap#svg2PixmapJSNI(String, int, int, ICallback)
      */
@@ -361,4 +434,72 @@ public class Svg2Pixmap {
         void onload(Pixmap pixmap);
     }
 
+    /**
+     * Receives measurements of rendering, see {@link Svg2Pixmap#renderListener}.
+     * Methods may be called from several threads at the same time when renders run concurrently.
+     * All of them do nothing by default, override the ones needed, e.g. to feed timers and counters of a metrics registry.
+     */
+    public interface IRenderListener {
+        enum Stage {
+            /**
+             * Parse the XML of a SVG file. Count is number of chars.
+             */
+            PARSE,
+            /**
+             * Resolve attributes of elements and compile their geometry. Count is number of shapes compiled.
+             */
+            COMPILE,
+            /**
+             * Scale a shape and flatten its curves into edges, for both fill and stroke. Count is number of fill edges.
+             */
+            FLATTEN,
+            /**
+             * Fill a shape. Count is number of edges.
+             */
+            FILL,
+            /**
+             * Outline and fill the stroke of a shape. Count is number of edges of the outline.
+             */
+            STROKE,
+            /**
+             * Resize the super-sampled Pixmap down. Count is number of samples, i.e. pixels read.
+             */
+            DOWNSAMPLE,
+            /**
+             * A whole svg2Pixmap call except parsing. Count is number of pixels of the result.
+             */
+            RENDER
+        }
+
+        /**
+         * A stage has finished.
+         *
+         * @param nanos wall time it took
+         * @param count what was counted depends on the stage, see {@link Stage}
+         */
+        default void onStage(Stage stage, long nanos, long count) {
+        }
+
+        /**
+         * A Pixmap has been allocated for rendering.
+         * Only Pixmaps are counted: buffers of rasterizers, of {@link ScratchArena} or of distance fields are not reported.
+         *
+         * @param bytes native memory it uses
+         */
+        default void onAllocated(long bytes) {
+        }
+
+        /**
+         * An element is not supported, so not drawn.
+         */
+        default void onElementSkipped(XmlReader.Element element) {
+        }
+
+        /**
+         * An element could not be compiled, so not drawn.
+         */
+        default void onElementFailed(XmlReader.Element element, Throwable error) {
+        }
+    }
+
 }
\ No newline at end of file
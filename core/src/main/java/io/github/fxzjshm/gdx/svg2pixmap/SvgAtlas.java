@@ -0,0 +1,246 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Null;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.OrderedMap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Render many SVG files straight into regions of a few large Pixmaps, i.e. pages of an atlas,
+ * instead of a Pixmap and a texture for each of them.
+ * Pages and regions are laid out like {@link com.badlogic.gdx.graphics.g2d.PixmapPacker} does,
+ * so {@link #generateTextureAtlas} gives a {@link TextureAtlas} to find regions by name.
+ * <p>
+ * Files are packed into shelves, tallest first. Rendering is split across {@link Parallel#executor}.
+ * Anti-aliasing follows {@link Svg2Pixmap#antiAliasing} and {@link Svg2Pixmap#generateScale}, as svg2Pixmap does.
+ * <pre>
+ * SvgAtlas atlas = new SvgAtlas(1024, 1024, 2);
+ * for (FileHandle file : files) atlas.add(file.nameWithoutExtension(), file.readString(), 64, 64);
+ * atlas.render();
+ * TextureAtlas textureAtlas = atlas.generateTextureAtlas(TextureFilter.Linear, TextureFilter.Linear, false);
+ * </pre>
+ */
+public class SvgAtlas implements Disposable {
+    final int pageWidth, pageHeight, padding;
+    final Array<Page> pages = new Array<>();
+    final ObjectSet<String> names = new ObjectSet<>();
+    /**
+     * Added but not rendered yet.
+     */
+    final Array<Item> pending = new Array<>();
+
+    /**
+     * @param padding pixels between regions, so that filtering does not bleed into neighbours
+     */
+    public SvgAtlas(int pageWidth, int pageHeight, int padding) {
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.padding = padding;
+    }
+
+    public void add(String name, String fileContent, int width, int height) {
+        add(name, SvgDocument.parse(fileContent), width, height);
+    }
+
+    /**
+     * Add a file to render at width x height in the next {@link #render()}.
+     */
+    public void add(String name, SvgDocument document, int width, int height) {
+        if (width + 2 * padding > pageWidth || height + 2 * padding > pageHeight) {
+            throw new GdxRuntimeException("Region " + name + " (" + width + "x" + height + ") does not fit in a page");
+        }
+        if (!names.add(name)) {
+            throw new GdxRuntimeException("Region " + name + " has already been added");
+        }
+        pending.add(new Item(name, document, width, height));
+    }
+
+    /**
+     * Pack and render everything added since last call. Later calls fill the space left on the last page first.
+     */
+    public void render() {
+        if (pending.size == 0) return;
+        final Item[] items = pending.toArray(Item.class);
+        pending.clear();
+
+        // tallest first, so that shelves waste little height
+        Item[] sorted = items.clone();
+        Arrays.sort(sorted, HEIGHT_DESCENDING);
+        for (Item item : sorted) place(item);
+
+        Parallel.forRows(items.length, (start, end) -> {
+            Pixmap scratch = null;
+            try {
+                for (int i = start; i < end; i++) scratch = draw(items[i], scratch);
+            } finally {
+                if (scratch != null) scratch.dispose();
+            }
+        });
+    }
+
+    /**
+     * Find a place for item, on the last page if possible.
+     */
+    void place(Item item) {
+        Page page = pages.size == 0 ? null : pages.peek();
+        if (page == null || !page.fit(item.width, item.height, padding)) {
+            page = new Page(new Pixmap(pageWidth, pageHeight, Pixmap.Format.RGBA8888), padding);
+            pages.add(page);
+            if (!page.fit(item.width, item.height, padding)) {
+                throw new GdxRuntimeException("Region " + item.name + " does not fit in a page"); // checked in add()
+            }
+        }
+        item.page = page;
+        item.x = page.cursorX;
+        item.y = page.shelfY;
+        page.cursorX += item.width + padding;
+        page.shelfHeight = Math.max(page.shelfHeight, item.height);
+        page.rects.put(item.name, new Rectangle(item.x, item.y, item.width, item.height));
+    }
+
+    /**
+     * Draw item into its region.
+     *
+     * @param scratch a Pixmap for super-sampling, reused if it has the right size
+     * @return the scratch to reuse for the next item
+     */
+    static Pixmap draw(Item item, @Null Pixmap scratch) {
+        Pixmap target = item.page.pixmap;
+        int scale = Svg2Pixmap.generateScale;
+        if (scale == 1 || Svg2Pixmap.antiAliasing == Svg2Pixmap.AntiAliasing.COVERAGE) {
+            item.document.draw(target, item.x, item.y, item.width, item.height);
+            return scratch;
+        }
+
+        int scaledWidth = item.width * scale, scaledHeight = item.height * scale;
+        if (scratch == null || scratch.getWidth() != scaledWidth || scratch.getHeight() != scaledHeight) {
+            if (scratch != null) scratch.dispose();
+            scratch = new Pixmap(scaledWidth, scaledHeight, Pixmap.Format.RGBA8888);
+        } else {
+            scratch.setBlending(Pixmap.Blending.None);
+            scratch.setColor(0);
+            scratch.fill();
+            scratch.setBlending(Pixmap.Blending.SourceOver);
+        }
+        item.document.draw(scratch);
+        H.downsample(scratch, target, item.x, item.y, scale, 0, item.height);
+        return scratch;
+    }
+
+    /**
+     * Upload every page as a texture and make a region for each file, named as added.
+     * The returned atlas owns the textures, the pages are still owned by this.
+     */
+    public TextureAtlas generateTextureAtlas(Texture.TextureFilter minFilter, Texture.TextureFilter magFilter, boolean useMipMaps) {
+        render();
+        TextureAtlas atlas = new TextureAtlas();
+        for (Page page : pages) {
+            Texture texture = new Texture(page.pixmap, useMipMaps);
+            texture.setFilter(minFilter, magFilter);
+            atlas.getTextures().add(texture);
+            for (OrderedMap.Entry<String, Rectangle> entry : page.rects) {
+                Rectangle rect = entry.value;
+                atlas.addRegion(entry.key, texture, (int) rect.x, (int) rect.y, (int) rect.width, (int) rect.height);
+            }
+        }
+        return atlas;
+    }
+
+    public Array<Page> getPages() {
+        return pages;
+    }
+
+    /**
+     * @return the page the file is rendered into, or null if not rendered.
+     */
+    @Null
+    public Page getPage(String name) {
+        for (Page page : pages) {
+            if (page.rects.containsKey(name)) return page;
+        }
+        return null;
+    }
+
+    /**
+     * @return the region of the file on its page, or null if not rendered.
+     */
+    @Null
+    public Rectangle getRect(String name) {
+        Page page = getPage(name);
+        return page == null ? null : page.rects.get(name);
+    }
+
+    @Override
+    public void dispose() {
+        for (Page page : pages) {
+            page.pixmap.dispose();
+        }
+        pages.clear();
+        names.clear();
+        pending.clear();
+    }
+
+    static final Comparator<Item> HEIGHT_DESCENDING = (a, b) -> a.height != b.height ? b.height - a.height : b.width - a.width;
+
+    /**
+     * A Pixmap with regions packed in shelves, top to bottom.
+     */
+    public static class Page {
+        final Pixmap pixmap;
+        final OrderedMap<String, Rectangle> rects = new OrderedMap<>();
+        // current shelf
+        int shelfY, shelfHeight = 0, cursorX;
+
+        Page(Pixmap pixmap, int padding) {
+            this.pixmap = pixmap;
+            this.shelfY = this.cursorX = padding;
+        }
+
+        /**
+         * Make room for a width x height region at (cursorX, shelfY), starting a new shelf if needed.
+         *
+         * @return false if the page is full.
+         */
+        boolean fit(int width, int height, int padding) {
+            if (cursorX + width + padding > pixmap.getWidth()) {
+                // next shelf
+                shelfY += shelfHeight + padding;
+                shelfHeight = 0;
+                cursorX = padding;
+            }
+            return cursorX + width + padding <= pixmap.getWidth() && shelfY + height + padding <= pixmap.getHeight();
+        }
+
+        public Pixmap getPixmap() {
+            return pixmap;
+        }
+
+        public OrderedMap<String, Rectangle> getRects() {
+            return rects;
+        }
+    }
+
+    static class Item {
+        final String name;
+        final SvgDocument document;
+        final int width, height;
+        Page page;
+        int x, y;
+
+        Item(String name, SvgDocument document, int width, int height) {
+            this.name = name;
+            this.document = document;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
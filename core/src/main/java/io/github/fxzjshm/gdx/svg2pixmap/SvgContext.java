@@ -0,0 +1,74 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.XmlReader;
+
+/**
+ * What every element of a document needs from its root, resolved once per document:
+ * the viewport, the default paints (as the style of root) and what percentages of stroke-width refer to.
+ */
+class SvgContext {
+    final XmlReader.Element root;
+    /**
+     * The size of the document, from attributes width and height, or from viewBox if they are absent.
+     */
+    final float width, height;
+    /**
+     * The area of user space to be mapped onto the whole Pixmap.
+     */
+    final float viewBoxX, viewBoxY, viewBoxWidth, viewBoxHeight;
+    /**
+     * The diagonal of the viewBox.
+     */
+    final float percentBasis;
+    /**
+     * Style of root, which every element inherits from.
+     */
+    final SvgStyle style;
+
+    SvgContext(XmlReader.Element root) {
+        this.root = root;
+        float viewBoxX = 0, viewBoxY = 0, viewBoxWidth, viewBoxHeight;
+        String viewBox = root.getAttribute("viewBox", null);
+        if (viewBox != null) {
+            String[] values = viewBox.trim().split("[\\s,]+");
+            viewBoxX = Float.parseFloat(values[0]);
+            viewBoxY = Float.parseFloat(values[1]);
+            viewBoxWidth = Float.parseFloat(values[2]);
+            viewBoxHeight = Float.parseFloat(values[3]);
+        } else {
+            viewBoxWidth = readLength(root, "width", 0);
+            viewBoxHeight = readLength(root, "height", 0);
+        }
+        if (!(viewBoxWidth > 0 && viewBoxHeight > 0)) {
+            throw new GdxRuntimeException("No viewBox, or width and height, in element \"" + root.getName() + "\", so its viewport is empty");
+        }
+        this.viewBoxX = viewBoxX;
+        this.viewBoxY = viewBoxY;
+        this.viewBoxWidth = viewBoxWidth;
+        this.viewBoxHeight = viewBoxHeight;
+        this.width = readLength(root, "width", viewBoxWidth);
+        this.height = readLength(root, "height", viewBoxHeight);
+        this.percentBasis = (float) Math.sqrt(viewBoxWidth * viewBoxWidth + viewBoxHeight * viewBoxHeight);
+        this.style = new SvgStyle(root, percentBasis);
+    }
+
+    /**
+     * @return a new context of the document element is in, for elements drawn one by one out of any {@link SvgDocument}.
+     */
+    static SvgContext of(XmlReader.Element element) {
+        XmlReader.Element root = element;
+        while (root.getParent() != null) root = root.getParent();
+        return new SvgContext(root);
+    }
+
+    static float readLength(XmlReader.Element element, String attribute, float defaultValue) {
+        String value = element.getAttribute(attribute, null);
+        if (value == null) return defaultValue;
+        try {
+            return Float.parseFloat(value.replace("px", "").trim());
+        } catch (NumberFormatException e) {
+            return defaultValue; // such as "100%"
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.Null;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.XmlReader;
+
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * A SVG file compiled once, ready to be drawn at any size without touching Strings again.
+ * Every supported element becomes a {@link Shape}: its geometry as a {@link SvgPath} and its resolved paint.
+ * <p>
+ * Instances are immutable, so they can be cached and drawn from several threads at the same time.
+ */
+public class SvgDocument {
+    /**
+     * The size of the document, from attributes width and height, or from viewBox if they are absent.
+     */
+    public final float width, height;
+    /**
+     * The area of user space to be mapped onto the whole Pixmap.
+     */
+    final float viewBoxX, viewBoxY, viewBoxWidth, viewBoxHeight;
+    final Shape[] shapes;
+
+    SvgDocument(float width, float height, float viewBoxX, float viewBoxY, float viewBoxWidth, float viewBoxHeight, Shape[] shapes) {
+        this.width = width;
+        this.height = height;
+        this.viewBoxX = viewBoxX;
+        this.viewBoxY = viewBoxY;
+        this.viewBoxWidth = viewBoxWidth;
+        this.viewBoxHeight = viewBoxHeight;
+        this.shapes = shapes;
+    }
+
+    /**
+     * Parse a SVG file.
+     * Unsupported or broken elements are skipped with an error logged, and reported to {@link Svg2Pixmap#renderListener}.
+     */
+    public static SvgDocument parse(String fileContent) {
+        Svg2Pixmap.IRenderListener listener = Svg2Pixmap.renderListener;
+        long time = listener == null ? 0 : TimeUtils.nanoTime();
+
+        XmlReader reader = new XmlReader();
+        XmlReader.Element root = reader.parse(fileContent);
+        if (listener != null) time = Svg2Pixmap.stage(listener, Svg2Pixmap.IRenderListener.Stage.PARSE, time, fileContent.length());
+
+        Compiler compiler = new Compiler(fileContent, listener);
+        compiler.root(root);
+        for (int i = 0; i < root.getChildCount(); i++) compiler.walk(root.getChild(i));
+        if (listener != null) Svg2Pixmap.stage(listener, Svg2Pixmap.IRenderListener.Stage.COMPILE, time, compiler.shapes.size);
+        return create(compiler.context, compiler.shapes.toArray());
+    }
+
+    /**
+     * Parse a SVG file from reader, which is closed at the end.
+     * Every element is compiled as soon as it is read, so the XML tree is never built and memory is
+     * a small buffer of chars plus the compiled shapes. Reading and compiling are interleaved, so they are reported at the end as
+     * {@link Svg2Pixmap.IRenderListener.Stage#PARSE} and {@link Svg2Pixmap.IRenderListener.Stage#COMPILE}, each with its own share of the time.
+     *
+     * @see SvgStreamReader
+     */
+    public static SvgDocument parse(Reader reader) {
+        Compiler compiler = new Compiler(null, Svg2Pixmap.renderListener);
+        SvgStreamReader streamReader = new SvgStreamReader(compiler);
+        streamReader.parse(reader);
+        return compiler.finish(streamReader.charCount);
+    }
+
+    /**
+     * Parse a SVG file in UTF-8, see {@link #parse(Reader)}.
+     */
+    public static SvgDocument parse(InputStream input) {
+        Compiler compiler = new Compiler(null, Svg2Pixmap.renderListener);
+        SvgStreamReader streamReader = new SvgStreamReader(compiler);
+        streamReader.parse(input);
+        return compiler.finish(streamReader.charCount);
+    }
+
+    /**
+     * Parse a SVG file in UTF-8, see {@link #parse(Reader)}.
+     */
+    public static SvgDocument parse(FileHandle file) {
+        Compiler compiler = new Compiler(null, Svg2Pixmap.renderListener);
+        SvgStreamReader streamReader = new SvgStreamReader(compiler);
+        streamReader.parse(file);
+        return compiler.finish(streamReader.charCount);
+    }
+
+    /**
+     * A document of the size and viewBox of context, with shapes.
+     */
+    static SvgDocument create(SvgContext context, Shape[] shapes) {
+        return new SvgDocument(context.width, context.height, context.viewBoxX, context.viewBoxY,
+                context.viewBoxWidth, context.viewBoxHeight, shapes);
+    }
+
+    /**
+     * Compile one element alone, with style and transforms inherited from its parents.
+     *
+     * @param context of the document element is in, see {@link SvgContext#of(XmlReader.Element)}
+     * @return null if the element is not supported.
+     */
+    @Null
+    static Shape compile(XmlReader.Element element, SvgContext context) {
+        Array<XmlReader.Element> parents = new Array<>();
+        for (XmlReader.Element parent = element.getParent(); parent != null && parent != context.root; parent = parent.getParent()) {
+            parents.add(parent);
+        }
+        SvgStyle style = context.style;
+        Affine2 transform = null;
+        while (parents.size > 0) {
+            XmlReader.Element parent = parents.pop();
+            style = SvgStyle.of(style, parent);
+            transform = transform(transform, parent);
+        }
+        return compile(element, SvgStyle.of(style, element), transform(transform, element));
+    }
+
+    /**
+     * Compile a shape element.
+     *
+     * @param style     computed style of element
+     * @param transform from user space of element to the one of root, null if identity
+     * @return null if the element is not supported.
+     */
+    @Null
+    static Shape compile(XmlReader.Element element, SvgStyle style, @Null Affine2 transform) {
+        String name = element.getName();
+        switch (name) {
+            case "path":
+                return new Shape(style, SvgPath.parse(H.getAttribute(element, "d")), transform);
+            case "circle": {
+                float cx = Float.parseFloat(H.getAttribute(element, "cx")),
+                        cy = Float.parseFloat(H.getAttribute(element, "cy")),
+                        r = Float.parseFloat(H.getAttribute(element, "r"));
+                return new Shape(style, SvgPath.ellipse(cx, cy, r, r), transform);
+            }
+            case "ellipse": {
+                float cx = Float.parseFloat(H.getAttribute(element, "cx")),
+                        cy = Float.parseFloat(H.getAttribute(element, "cy")),
+                        rx = Float.parseFloat(H.getAttribute(element, "rx")),
+                        ry = Float.parseFloat(H.getAttribute(element, "ry"));
+                return new Shape(style, SvgPath.ellipse(cx, cy, rx, ry), transform);
+            }
+            case "rect": {
+                String rx = element.getAttribute("rx", null), ry = element.getAttribute("ry", null);
+                if (rx == null) rx = ry;
+                if (ry == null) ry = rx;
+                return new Shape(style, SvgPath.rect(readNumber(element, "x"), readNumber(element, "y"),
+                        readNumber(element, "width"), readNumber(element, "height"),
+                        rx == null ? 0 : Float.parseFloat(rx), ry == null ? 0 : Float.parseFloat(ry)), transform);
+            }
+            case "line":
+                return new Shape(style, SvgPath.line(readNumber(element, "x1"), readNumber(element, "y1"),
+                        readNumber(element, "x2"), readNumber(element, "y2")), transform);
+            case "polyline":
+                return new Shape(style, SvgPath.poly(element.getAttribute("points", ""), false), transform);
+            case "polygon":
+                return new Shape(style, SvgPath.poly(element.getAttribute("points", ""), true), transform);
+            default:
+                Gdx.app.error("svg2PixmapDirectDraw", "Unsupported element " + name);
+                Svg2Pixmap.IRenderListener listener = Svg2Pixmap.renderListener;
+                if (listener != null) listener.onElementSkipped(element);
+                return null;
+        }
+    }
+
+    /**
+     * @return attribute of element itself as a number, 0 if absent.
+     */
+    static float readNumber(XmlReader.Element element, String attribute) {
+        String value = element.getAttribute(attribute, null);
+        return value == null ? 0 : Float.parseFloat(value);
+    }
+
+    /**
+     * @return parent followed by the transform attribute of element, a new Affine2 if there is any.
+     */
+    @Null
+    static Affine2 transform(@Null Affine2 parent, XmlReader.Element element) {
+        String value = element.getAttribute("transform", null);
+        if (value == null) return parent;
+        Affine2 transform = parent == null ? new Affine2() : new Affine2(parent);
+        return SvgTransform.parse(value, transform);
+    }
+
+    /**
+     * Draw every shape, mapping the viewBox onto the whole pixmap, which can be of any format.
+     */
+    public void draw(Pixmap pixmap) {
+        draw(pixmap, 0, 0, pixmap.getWidth(), pixmap.getHeight());
+    }
+
+    /**
+     * Draw every shape, mapping the viewBox onto the region of pixmap, without touching pixels outside of it.
+     */
+    public void draw(Pixmap pixmap, int x, int y, int width, int height) {
+        float scaleX = width / viewBoxWidth, scaleY = height / viewBoxHeight;
+        float originX = viewBoxX - x / scaleX, originY = viewBoxY - y / scaleY;
+        if (TileRenderer.shouldTile(width, height)) {
+            drawTiled(pixmap, originX, originY, scaleX, scaleY, x, y, width, height);
+            return;
+        }
+        // shapes are drawn one after another, so they share the same buffers
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            for (Shape shape : shapes) {
+                Svg2Pixmap.drawPath(shape.path, originX, originY, scaleX, scaleY, shape.fill, shape.fillRule, shape.stroke, shape.strokeWidth,
+                        shape.lineJoin, shape.lineCap, shape.miterLimit, pixmap, x, y, width, height, arena,
+                        Svg2Pixmap.antiAliasing == Svg2Pixmap.AntiAliasing.COVERAGE);
+            }
+        } finally {
+            arena.release();
+        }
+    }
+
+    /**
+     * Flatten every shape first, then fill them tile by tile in parallel. Same pixels as drawing shape by shape.
+     *
+     * @see TileRenderer
+     */
+    void drawTiled(Pixmap pixmap, float originX, float originY, float scaleX, float scaleY, int x, int y, int width, int height) {
+        Svg2Pixmap.IRenderListener listener = Svg2Pixmap.renderListener;
+        long time = listener == null ? 0 : TimeUtils.nanoTime();
+
+        TileRenderer renderer = new TileRenderer();
+        for (Shape shape : shapes) {
+            renderer.add(shape.path, originX, originY, scaleX, scaleY, shape.fill, shape.fillRule, shape.stroke, shape.strokeWidth,
+                    shape.lineJoin, shape.lineCap, shape.miterLimit);
+        }
+        if (listener != null) time = Svg2Pixmap.stage(listener, Svg2Pixmap.IRenderListener.Stage.FLATTEN, time, renderer.edgeCount);
+
+        renderer.render(pixmap, x, y, width, height);
+        if (listener != null) Svg2Pixmap.stage(listener, Svg2Pixmap.IRenderListener.Stage.FILL, time, renderer.edgeCount);
+    }
+
+    /**
+     * Render into a new width x height Pixmap, anti-aliased as {@link Svg2Pixmap#antiAliasing} says.
+     *
+     * @see Svg2Pixmap#svg2Pixmap(SvgDocument, int, int)
+     */
+    public Pixmap render(int width, int height) {
+        return Svg2Pixmap.svg2Pixmap(this, width, height);
+    }
+
+    /**
+     * Generate a signed distance field of this document into a new width x height Pixmap.
+     *
+     * @see DistanceField
+     */
+    public Pixmap renderDistanceField(int width, int height) {
+        return DistanceField.generate(this, width, height);
+    }
+
+    public int getShapeCount() {
+        return shapes.length;
+    }
+
+    /**
+     * Compiles elements top down, from {@link SvgStreamReader} or a tree, keeping computed styles and transforms of open groups.
+     * So memory is bounded by how deep groups are nested, and every group resolves its style once for all its children.
+     */
+    static class Compiler implements SvgStreamReader.IElementHandler {
+        final long time;
+        @Null
+        final String fileContent;
+        @Null
+        final Svg2Pixmap.IRenderListener listener;
+        final Array<Shape> shapes = new Array<>(false, 16, Shape.class);
+        final Array<SvgStyle> styles = new Array<>();
+        final Array<Affine2> transforms = new Array<>();
+        SvgContext context;
+        int elementCount = 0, shapeCount = 0;
+        /**
+         * Time spent in {@link #open(XmlReader.Element)}, and the part of it in {@link #add(Shape)}, measured only with a listener.
+         */
+        long openNanos = 0, addNanos = 0;
+
+        /**
+         * @param fileContent logged at debug level if an element is broken, null if not kept
+         */
+        Compiler(@Null String fileContent, @Null Svg2Pixmap.IRenderListener listener) {
+            this.fileContent = fileContent;
+            this.listener = listener;
+            this.time = listener == null ? 0 : TimeUtils.nanoTime();
+        }
+
+        @Override
+        public void root(XmlReader.Element root) {
+            context = new SvgContext(root);
+            styles.add(context.style);
+            transforms.add(null);
+        }
+
+        @Override
+        public boolean open(XmlReader.Element element) {
+            elementCount++;
+            long start = listener == null ? 0 : TimeUtils.nanoTime();
+            try {
+                if (element.getName().equals("g")) {
+                    styles.add(SvgStyle.of(styles.peek(), element));
+                    transforms.add(transform(transforms.peek(), element));
+                    return true;
+                }
+                Shape shape = compile(element, SvgStyle.of(styles.peek(), element), transform(transforms.peek(), element));
+                if (shape != null) {
+                    shapeCount++;
+                    long time = listener == null ? 0 : TimeUtils.nanoTime();
+                    add(shape);
+                    if (listener != null) addNanos += TimeUtils.nanoTime() - time;
+                }
+            } catch (Exception e) {
+                Gdx.app.error("Svg2Pixmap", "Skipped broken element " + element.getName(), e);
+                if (fileContent != null) Gdx.app.debug("Svg2Pixmap", "File content:\n" + fileContent);
+                if (listener != null) listener.onElementFailed(element, e);
+            } finally {
+                if (listener != null) openNanos += TimeUtils.nanoTime() - start;
+            }
+            return false;
+        }
+
+        @Override
+        public void close(XmlReader.Element element) {
+            styles.pop();
+            transforms.pop();
+        }
+
+        /**
+         * Visit element and its children, if it is a group.
+         */
+        void walk(XmlReader.Element element) {
+            if (!open(element)) return;
+            for (int i = 0; i < element.getChildCount(); i++) walk(element.getChild(i));
+            close(element);
+        }
+
+        void add(Shape shape) {
+            shapes.add(shape);
+        }
+
+        /**
+         * @param charCount number of chars read by {@link SvgStreamReader}
+         */
+        SvgDocument finish(long charCount) {
+            if (context == null) throw new GdxRuntimeException("No root element");
+            report(charCount);
+            return create(context, shapes.toArray());
+        }
+
+        /**
+         * Report a streamed parse: everything outside of {@link #open(XmlReader.Element)} as PARSE, compiling elements as COMPILE.
+         * Time spent drawing shapes in {@link #add(Shape)} belongs to neither, and is reported by drawing itself.
+         */
+        void report(long charCount) {
+            if (listener == null) return;
+            listener.onStage(Svg2Pixmap.IRenderListener.Stage.PARSE, TimeUtils.nanoTime() - time - openNanos, charCount);
+            listener.onStage(Svg2Pixmap.IRenderListener.Stage.COMPILE, openNanos - addNanos, shapeCount);
+        }
+    }
+
+    /**
+     * Draws shapes read by {@link SvgStreamReader} onto a new width x height Pixmap as soon as they are read.
+     */
+    static class Drawer extends Compiler {
+        final int width, height;
+        Pixmap pixmap;
+        float originX, originY, scaleX, scaleY;
+
+        Drawer(int width, int height) {
+            super(null, Svg2Pixmap.renderListener);
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void root(XmlReader.Element root) {
+            super.root(root);
+            scaleX = width / context.viewBoxWidth;
+            scaleY = height / context.viewBoxHeight;
+            originX = context.viewBoxX;
+            originY = context.viewBoxY;
+            pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+            if (listener != null) listener.onAllocated(PixmapCache.sizeOf(pixmap));
+        }
+
+        @Override
+        void add(Shape shape) {
+            shape.draw(pixmap, originX, originY, scaleX, scaleY);
+        }
+
+        /**
+         * @param charCount number of chars read by {@link SvgStreamReader}
+         */
+        Pixmap finishDrawing(long charCount) {
+            if (pixmap == null) throw new GdxRuntimeException("No root element");
+            report(charCount);
+            return pixmap;
+        }
+    }
+
+    /**
+     * A compiled element.
+     */
+    static class Shape {
+        final SvgPath path;
+        final Color fill, stroke;
+        final ScanlineRasterizer.FillRule fillRule;
+        final float strokeWidth;
+        final Stroker.LineJoin lineJoin;
+        final Stroker.LineCap lineCap;
+        final float miterLimit;
+
+        Shape(SvgStyle style, SvgPath path, @Null Affine2 transform) {
+            if (path == null) throw new GdxRuntimeException("No geometry");
+            if (Float.isNaN(style.strokeWidth)) throw new GdxRuntimeException("No attribute \"stroke-width\" in element or its parents");
+            this.path = path;
+            this.fill = SvgStyle.toColor(style.getFill());
+            this.stroke = SvgStyle.toColor(style.getStroke());
+            this.fillRule = style.fillRule;
+            this.lineJoin = style.lineJoin;
+            this.lineCap = style.lineCap;
+            this.miterLimit = style.miterLimit;
+            if (transform == null) {
+                this.strokeWidth = style.strokeWidth;
+            } else {
+                path.transform(transform);
+                // like scaling, a skewed or non-uniform transform would need an elliptic pen, use the average instead
+                this.strokeWidth = style.strokeWidth * (float) Math.sqrt(Math.abs(transform.det()));
+            }
+        }
+
+        void draw(Pixmap pixmap, float originX, float originY, float scaleX, float scaleY) {
+            draw(pixmap, originX, originY, scaleX, scaleY, 0, 0, pixmap.getWidth(), pixmap.getHeight());
+        }
+
+        void draw(Pixmap pixmap, float originX, float originY, float scaleX, float scaleY,
+                  int clipX, int clipY, int clipWidth, int clipHeight) {
+            Svg2Pixmap.drawPath(path, originX, originY, scaleX, scaleY, fill, fillRule, stroke, strokeWidth,
+                    lineJoin, lineCap, miterLimit, pixmap, clipX, clipY, clipWidth, clipHeight);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.math.Affine2;
+
+/**
+ * Geometry of a path, compiled into primitive arrays.
+ * Only absolute move, line, cubic Bezier curve and close commands are kept: H and V become lines,
+ * Q, T and S become cubic curves, arcs become cubic curves, relative positions become absolute ones.
+ * Coordinates are in user units, i.e. not scaled to any Pixmap, so that one SvgPath can be drawn at any size.
+ */
+public class SvgPath {
+    public static final byte MOVE = 'M', LINE = 'L', CUBIC = 'C', CLOSE = 'Z';
+
+    byte[] verbs = new byte[16];
+    int verbCount = 0;
+    /**
+     * 2 floats for {@link #MOVE} and {@link #LINE}, 6 floats for {@link #CUBIC}, none for {@link #CLOSE}.
+     */
+    float[] coords = new float[32];
+    int coordCount = 0;
+
+    // current point and start point of current sub-path, used while building
+    float lastX, lastY, startX, startY;
+    /**
+     * Curves of the last arc, only while building.
+     */
+    float[] arc;
+
+    /**
+     * Parse the property d of a {@code <path />} element.
+     * Numbers are read straight from the chars, following the grammar in
+     * https://www.w3.org/TR/SVG11/paths.html#PathDataBNF, so "1.5.5", "-1-2", "1e-3" and flags without separators
+     * such as "a1 1 0 00 1 1" are all fine. No String or boxed number is created.
+     *
+     * @throws IllegalArgumentException if d is malformed.
+     */
+    public static SvgPath parse(CharSequence d) {
+        SvgPath path = new SvgPath();
+        Lexer lexer = new Lexer(d);
+
+        char command = 0; // Current command, may be repeated implicitly.
+        char lastCurve = 0; // 'C' or 'Q' if last command was a curve whose control point can be reflected.
+        float controlX = 0, controlY = 0; // Last control point of last curve.
+        while (lexer.skipSeparators()) {
+            char c = d.charAt(lexer.index);
+            if (('A' <= c && c <= 'Z') || ('a' <= c && c <= 'z')) {
+                command = c;
+                lexer.index++;
+                if (command == 'Z' || command == 'z') {
+                    path.close();
+                    lastCurve = 0;
+                    continue;
+                }
+            } else if (command == 0 || command == 'Z' || command == 'z') {
+                throw new IllegalArgumentException("No command before position " + lexer.index + " in path \"" + d + "\"");
+            }
+
+            // read one set of parameters of command
+            boolean relative = 'a' <= command && command <= 'z';
+            float dx = relative ? path.lastX : 0, dy = relative ? path.lastY : 0;
+            char curve = 0;
+            switch (Character.toUpperCase(command)) {
+                case 'M':
+                    path.moveTo(lexer.number() + dx, lexer.number() + dy);
+                    command = relative ? 'l' : 'L'; // following pairs are lines
+                    break;
+                case 'L':
+                    path.lineTo(lexer.number() + dx, lexer.number() + dy);
+                    break;
+                case 'H':
+                    path.lineTo(lexer.number() + dx, path.lastY);
+                    break;
+                case 'V':
+                    path.lineTo(path.lastX, lexer.number() + dy);
+                    break;
+                case 'C': {
+                    float x1 = lexer.number() + dx, y1 = lexer.number() + dy;
+                    controlX = lexer.number() + dx;
+                    controlY = lexer.number() + dy;
+                    path.cubicTo(x1, y1, controlX, controlY, lexer.number() + dx, lexer.number() + dy);
+                    curve = 'C';
+                    break;
+                }
+                case 'S': {
+                    float x1 = path.lastX, y1 = path.lastY;
+                    if (lastCurve == 'C') {
+                        x1 = 2 * path.lastX - controlX;
+                        y1 = 2 * path.lastY - controlY;
+                    }
+                    controlX = lexer.number() + dx;
+                    controlY = lexer.number() + dy;
+                    path.cubicTo(x1, y1, controlX, controlY, lexer.number() + dx, lexer.number() + dy);
+                    curve = 'C';
+                    break;
+                }
+                case 'Q':
+                    controlX = lexer.number() + dx;
+                    controlY = lexer.number() + dy;
+                    path.quadTo(controlX, controlY, lexer.number() + dx, lexer.number() + dy);
+                    curve = 'Q';
+                    break;
+                case 'T':
+                    if (lastCurve == 'Q') {
+                        controlX = 2 * path.lastX - controlX;
+                        controlY = 2 * path.lastY - controlY;
+                    } else {
+                        controlX = path.lastX;
+                        controlY = path.lastY;
+                    }
+                    path.quadTo(controlX, controlY, lexer.number() + dx, lexer.number() + dy);
+                    curve = 'Q';
+                    break;
+                case 'A': {
+                    float rx = lexer.number(), ry = lexer.number(), xAxisRotation = lexer.number();
+                    int largeArcFlag = lexer.flag(), sweepFlag = lexer.flag();
+                    path.arcTo(rx, ry, xAxisRotation, largeArcFlag, sweepFlag, lexer.number() + dx, lexer.number() + dy);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown command " + command + " at position " + (lexer.index - 1)
+                            + " in path \"" + d + "\"");
+            }
+            lastCurve = curve;
+        }
+        return path;
+    }
+
+    /**
+     * How far control points of a cubic curve are from its ends, relative to the radius, to approximate a quarter of a circle.
+     * <p>
+     * Not the usual 4/3 * tan(pi/8) = 0.5522847498, which puts the middle of the curve exactly on the circle
+     * but everywhere else outside of it, by up to 0.027% of the radius. This one spreads the error evenly
+     * on both sides, at most 0.019%, see http://spencermortensen.com/articles/bezier-circle
+     * It is also what {@link ArcConverter} (and SvgArcToCubicBezier before it) makes of arcs of 90 degrees,
+     * so circles and ellipses come out the same as when they were drawn as 4 arcs.
+     */
+    static final float KAPPA = 0.551915024494f;
+
+    /**
+     * An ellipse centered at (cx, cy), starting from the left and going clockwise like browsers do,
+     * made of 4 quarters straight away, without any arc math.
+     */
+    public static SvgPath ellipse(float cx, float cy, float rx, float ry) {
+        SvgPath path = new SvgPath();
+        float kx = KAPPA * rx, ky = KAPPA * ry;
+        path.moveTo(cx - rx, cy);
+        path.cubicTo(cx - rx, cy - ky, cx - kx, cy - ry, cx, cy - ry);
+        path.cubicTo(cx + kx, cy - ry, cx + rx, cy - ky, cx + rx, cy);
+        path.cubicTo(cx + rx, cy + ky, cx + kx, cy + ry, cx, cy + ry);
+        path.cubicTo(cx - kx, cy + ry, cx - rx, cy + ky, cx - rx, cy);
+        path.close();
+        return path;
+    }
+
+    /**
+     * A rectangle, with corners rounded by an ellipse of radii (rx, ry) if they are positive.
+     * Radii are clamped to half of the size, as SVG says. Without rounded corners, it is 4 lines, which
+     * {@link ScanlineRasterizer} fills by spans directly if they stay axis-aligned.
+     *
+     * @see <a href="https://www.w3.org/TR/SVG11/shapes.html#RectElement">The rect element</a>
+     */
+    public static SvgPath rect(float x, float y, float width, float height, float rx, float ry) {
+        SvgPath path = new SvgPath();
+        if (width <= 0 || height <= 0) return path; // not rendered
+        rx = Math.max(0, Math.min(rx, width / 2));
+        ry = Math.max(0, Math.min(ry, height / 2));
+        float right = x + width, bottom = y + height;
+        if (rx == 0 || ry == 0) {
+            path.moveTo(x, y);
+            path.lineTo(right, y);
+            path.lineTo(right, bottom);
+            path.lineTo(x, bottom);
+            path.close();
+            return path;
+        }
+        float kx = KAPPA * rx, ky = KAPPA * ry;
+        path.moveTo(x + rx, y);
+        path.lineTo(right - rx, y);
+        path.cubicTo(right - rx + kx, y, right, y + ry - ky, right, y + ry);
+        path.lineTo(right, bottom - ry);
+        path.cubicTo(right, bottom - ry + ky, right - rx + kx, bottom, right - rx, bottom);
+        path.lineTo(x + rx, bottom);
+        path.cubicTo(x + rx - kx, bottom, x, bottom - ry + ky, x, bottom - ry);
+        path.lineTo(x, y + ry);
+        path.cubicTo(x, y + ry - ky, x + rx - kx, y, x + rx, y);
+        path.close();
+        return path;
+    }
+
+    public static SvgPath line(float x1, float y1, float x2, float y2) {
+        SvgPath path = new SvgPath();
+        path.moveTo(x1, y1);
+        path.lineTo(x2, y2);
+        return path;
+    }
+
+    /**
+     * Lines through points, the property points of {@code <polyline />} and {@code <polygon />}.
+     * An odd coordinate at the end is ignored.
+     *
+     * @param close true for a polygon
+     * @throws IllegalArgumentException if points is malformed.
+     */
+    public static SvgPath poly(CharSequence points, boolean close) {
+        SvgPath path = new SvgPath();
+        Lexer lexer = new Lexer(points, "points");
+        while (lexer.skipSeparators()) {
+            float x = lexer.number();
+            if (!lexer.skipSeparators()) break;
+            float y = lexer.number();
+            if (path.verbCount == 0) path.moveTo(x, y);
+            else path.lineTo(x, y);
+        }
+        if (close && path.verbCount > 0) path.close();
+        return path;
+    }
+
+    void moveTo(float x, float y) {
+        addVerb(MOVE);
+        addCoords(x, y);
+        startX = lastX = x;
+        startY = lastY = y;
+    }
+
+    void lineTo(float x, float y) {
+        addVerb(LINE);
+        addCoords(x, y);
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * Quadratic curve, stored as the exactly same cubic one.
+     */
+    void quadTo(float x1, float y1, float x, float y) {
+        cubicTo(lastX + 2f / 3 * (x1 - lastX), lastY + 2f / 3 * (y1 - lastY),
+                x + 2f / 3 * (x1 - x), y + 2f / 3 * (y1 - y), x, y);
+    }
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x, float y) {
+        addVerb(CUBIC);
+        addCoords(x1, y1);
+        addCoords(x2, y2);
+        addCoords(x, y);
+        lastX = x;
+        lastY = y;
+    }
+
+    /**
+     * Elliptical arc, stored as cubic curves. A line if a radius is 0, as SVG says.
+     *
+     * @see ArcConverter#toCubics(float, float, float, float, float, float, float, int, int, float[], int)
+     */
+    void arcTo(float rx, float ry, float xAxisRotation, int largeArcFlag, int sweepFlag, float x, float y) {
+        if (arc == null) arc = new float[ArcConverter.MAX_FLOATS];
+        int curves = ArcConverter.toCubics(lastX, lastY, x, y, rx, ry, xAxisRotation, largeArcFlag, sweepFlag, arc, 0);
+        if (curves == 0) {
+            if (x != lastX || y != lastY) lineTo(x, y);
+            return;
+        }
+        for (int i = 0; i < curves * 6; i += 6) {
+            cubicTo(arc[i], arc[i + 1], arc[i + 2], arc[i + 3], arc[i + 4], arc[i + 5]);
+        }
+        lastX = x;
+        lastY = y;
+    }
+
+    void close() {
+        addVerb(CLOSE);
+        lastX = startX;
+        lastY = startY;
+    }
+
+    /**
+     * Map every point by transform. Exact for lines and curves, as Bezier curves are affine invariant.
+     */
+    void transform(Affine2 transform) {
+        for (int i = 0; i < coordCount; i += 2) {
+            float x = coords[i], y = coords[i + 1];
+            coords[i] = transform.m00 * x + transform.m01 * y + transform.m02;
+            coords[i + 1] = transform.m10 * x + transform.m11 * y + transform.m12;
+        }
+    }
+
+    public int getVerbCount() {
+        return verbCount;
+    }
+
+    /**
+     * @return one of {@link #MOVE}, {@link #LINE}, {@link #CUBIC} and {@link #CLOSE}
+     */
+    public byte getVerb(int index) {
+        return verbs[index];
+    }
+
+    /**
+     * @return how many coordinates all verbs have, x and y counted separately.
+     */
+    public int getCoordCount() {
+        return coordCount;
+    }
+
+    /**
+     * @return x of a point if index is even, y if odd, points of all verbs one after another.
+     */
+    public float getCoord(int index) {
+        return coords[index];
+    }
+
+    void addVerb(byte verb) {
+        if (verbCount == verbs.length) {
+            byte[] tmp = new byte[verbs.length * 2];
+            System.arraycopy(verbs, 0, tmp, 0, verbCount);
+            verbs = tmp;
+        }
+        verbs[verbCount++] = verb;
+    }
+
+    void addCoords(float x, float y) {
+        if (coordCount + 2 > coords.length) {
+            float[] tmp = new float[coords.length * 2];
+            System.arraycopy(coords, 0, tmp, 0, coordCount);
+            coords = tmp;
+        }
+        coords[coordCount++] = x;
+        coords[coordCount++] = y;
+    }
+
+    /**
+     * Reads numbers and flags of path data, moving {@link #index} forward.
+     */
+    static class Lexer {
+        final CharSequence s;
+        /**
+         * What s is, named in messages of errors, e.g. "path".
+         */
+        final String kind;
+        final int length;
+        int index = 0;
+
+        static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+        Lexer(CharSequence s) {
+            this(s, "path");
+        }
+
+        Lexer(CharSequence s, String kind) {
+            this.s = s;
+            this.kind = kind;
+            this.length = s.length();
+        }
+
+        /**
+         * Skip white spaces and commas.
+         *
+         * @return false if nothing left.
+         */
+        boolean skipSeparators() {
+            while (index < length) {
+                char c = s.charAt(index);
+                if (c == ' ' || c == ',' || c == '\n' || c == '\r' || c == '\t' || c == '\f') index++;
+                else return true;
+            }
+            return false;
+        }
+
+        float number() {
+            skipSeparators();
+            int start = index;
+            boolean negative = false;
+            if (index < length && (s.charAt(index) == '-' || s.charAt(index) == '+')) {
+                negative = s.charAt(index) == '-';
+                index++;
+            }
+            long mantissa = 0;
+            int exponent = 0;
+            boolean hasDigits = false;
+            char c;
+            while (index < length && '0' <= (c = s.charAt(index)) && c <= '9') {
+                if (mantissa < 100000000000000000L) mantissa = mantissa * 10 + (c - '0');
+                else exponent++; // too many digits, just keep the magnitude
+                index++;
+                hasDigits = true;
+            }
+            // a second '.' starts the next number, e.g. "1.5.5" is 1.5 and .5
+            if (index < length && s.charAt(index) == '.') {
+                index++;
+                while (index < length && '0' <= (c = s.charAt(index)) && c <= '9') {
+                    if (mantissa < 100000000000000000L) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        exponent--;
+                    }
+                    index++;
+                    hasDigits = true;
+                }
+            }
+            if (!hasDigits) {
+                throw new IllegalArgumentException("Expect a number at position " + start + " in " + kind + " \"" + s + "\"");
+            }
+            // exponent, only if digits follow, so that "1e" is not eaten
+            if (index < length && (s.charAt(index) == 'e' || s.charAt(index) == 'E')) {
+                int i = index + 1;
+                boolean negativeExponent = false;
+                if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+                    negativeExponent = s.charAt(i) == '-';
+                    i++;
+                }
+                if (i < length && '0' <= s.charAt(i) && s.charAt(i) <= '9') {
+                    int e = 0;
+                    while (i < length && '0' <= (c = s.charAt(i)) && c <= '9') {
+                        if (e < 1000) e = e * 10 + (c - '0');
+                        i++;
+                    }
+                    exponent += negativeExponent ? -e : e;
+                    index = i;
+                }
+            }
+            double value = mantissa;
+            if (exponent > 0) value *= pow10(exponent);
+            else if (exponent < 0) value /= pow10(-exponent);
+            return (float) (negative ? -value : value);
+        }
+
+        /**
+         * A flag of arcs, which is a single '0' or '1' and may be followed by next number directly.
+         */
+        int flag() {
+            skipSeparators();
+            if (index < length) {
+                char c = s.charAt(index);
+                if (c == '0' || c == '1') {
+                    index++;
+                    return c - '0';
+                }
+            }
+            throw new IllegalArgumentException("Expect a flag at position " + index + " in " + kind + " \"" + s + "\"");
+        }
+
+        static double pow10(int n) {
+            return n < POWERS_OF_TEN.length ? POWERS_OF_TEN[n] : Math.pow(10, n);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SerializationException;
+import com.badlogic.gdx.utils.StreamUtils;
+import com.badlogic.gdx.utils.XmlReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+/**
+ * Reads a SVG file element by element, without building the XML tree.
+ * Every element is handed out once its attributes are read, as an {@link XmlReader.Element} of its own attributes only.
+ * <p>
+ * Children of an element are read only if the handler enters it (e.g. {@code <g>}), otherwise they are skipped with it,
+ * without making any String of them.
+ * <p>
+ * The file is read {@link #BUFFER_SIZE} chars at a time, so memory grows with how deep elements are nested and
+ * how long the attributes of one element are, never with the whole file.
+ * Like {@link XmlReader}, text is ignored, entities are not replaced in attribute values and
+ * names of end tags are not checked.
+ */
+class SvgStreamReader {
+    static final int BUFFER_SIZE = 4096;
+
+    interface IElementHandler {
+        /**
+         * @param root the {@code <svg>} element with its attributes, before any child
+         */
+        void root(XmlReader.Element root);
+
+        /**
+         * @param element an element inside root, with its attributes, before any child
+         * @return whether to enter element, i.e. read its children and call {@link #close(XmlReader.Element)} at its end
+         */
+        boolean open(XmlReader.Element element);
+
+        /**
+         * @param element root, or an element entered by {@link #open(XmlReader.Element)}, after its last child
+         */
+        void close(XmlReader.Element element);
+    }
+
+    final IElementHandler handler;
+    final char[] buffer = new char[BUFFER_SIZE];
+    int position = 0, limit = 0, line = 1;
+    /**
+     * Number of chars read so far.
+     */
+    long charCount = 0;
+    Reader reader;
+    final StringBuilder token = new StringBuilder();
+
+    /**
+     * How many elements are open, skipped ones included.
+     */
+    int depth = 0;
+    /**
+     * Elements skipped with all their children are deeper than this.
+     */
+    int skipDepth = Integer.MAX_VALUE;
+    final Array<XmlReader.Element> entered = new Array<>();
+
+    SvgStreamReader(IElementHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Read a whole file from reader, which is closed at the end.
+     */
+    void parse(Reader reader) {
+        this.reader = reader;
+        try {
+            int c;
+            while ((c = read()) != -1) {
+                if (c != '<') continue; // text
+                c = next();
+                if (c == '?') {
+                    skipPast("?>");
+                } else if (c == '!') {
+                    declaration();
+                } else if (c == '/') {
+                    do c = next(); while (c != '>');
+                    end();
+                } else {
+                    start(c);
+                }
+            }
+            if (depth != 0) {
+                throw new SerializationException("Error parsing XML, unclosed element: "
+                        + (entered.size > 0 ? entered.peek().getName() : "at depth " + depth));
+            }
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        } finally {
+            StreamUtils.closeQuietly(reader);
+            this.reader = null;
+        }
+    }
+
+    /**
+     * Read a whole file in UTF-8 from input, which is closed at the end.
+     */
+    void parse(InputStream input) {
+        try {
+            parse(new InputStreamReader(input, "UTF-8"));
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        } finally {
+            StreamUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Read a whole file in UTF-8. Errors of the XML are thrown as they are, failing to open file is wrapped like them.
+     */
+    void parse(FileHandle file) {
+        Reader reader;
+        try {
+            reader = file.reader("UTF-8");
+        } catch (GdxRuntimeException e) {
+            throw new SerializationException("Error reading file: " + file, e);
+        }
+        parse(reader);
+    }
+
+    /**
+     * A start tag, after its '<' and the first char c of its name.
+     */
+    void start(int c) throws IOException {
+        depth++;
+        if (depth == 1 && entered.size > 0) throw error("more than one root element");
+        boolean skipped = depth > skipDepth;
+        c = name(c, !skipped);
+        XmlReader.Element element = skipped ? null : new XmlReader.Element(token.toString(), null);
+        boolean empty = false;
+        while (true) {
+            c = skipSpaces(c);
+            if (c == '>') break;
+            if (c == '/') {
+                if (next() != '>') throw error("expect '>' after '/'");
+                empty = true;
+                break;
+            }
+            c = skipSpaces(name(c, !skipped));
+            if (c != '=') throw error("expect '=' after attribute " + token);
+            String name = skipped ? null : token.toString();
+            int quote = skipSpaces(next());
+            if (quote != '"' && quote != '\'') throw error("expect a quoted value of attribute " + token);
+            token.setLength(0);
+            while ((c = next()) != quote) {
+                if (!skipped) token.append((char) c);
+            }
+            if (!skipped) element.setAttribute(name, token.toString());
+            c = next();
+        }
+        if (!skipped) {
+            if (depth == 1) {
+                handler.root(element);
+                entered.add(element);
+            } else if (handler.open(element)) {
+                entered.add(element);
+            } else {
+                skipDepth = depth;
+            }
+        }
+        if (empty) end();
+    }
+
+    /**
+     * An end tag, or the end of an empty element.
+     */
+    void end() {
+        if (depth == 0) throw error("end tag without start tag");
+        if (depth == skipDepth) {
+            skipDepth = Integer.MAX_VALUE;
+        } else if (depth < skipDepth) {
+            handler.close(entered.pop());
+        }
+        depth--;
+    }
+
+    /**
+     * After "<!": a comment, a CDATA section, or a declaration such as DOCTYPE, which may have an internal subset in [].
+     */
+    void declaration() throws IOException {
+        int c = next();
+        if (c == '-') {
+            if (next() != '-') throw error("expect \"<!--\"");
+            skipPast("-->");
+        } else if (c == '[') {
+            skipPast("]]>"); // CDATA, i.e. text
+        } else {
+            int brackets = 0;
+            while (c != '>' || brackets > 0) {
+                if (c == '[') brackets++;
+                else if (c == ']') brackets--;
+                c = next();
+            }
+        }
+    }
+
+    /**
+     * Read a name starting with c into {@link #token} if keep.
+     *
+     * @return the char after the name
+     */
+    int name(int c, boolean keep) throws IOException {
+        token.setLength(0);
+        while (c != '>' && c != '/' && c != '=' && !isSpace(c)) {
+            if (keep) token.append((char) c);
+            c = next();
+        }
+        if (keep && token.length() == 0) throw error("expect a name");
+        return c;
+    }
+
+    int skipSpaces(int c) throws IOException {
+        while (isSpace(c)) c = next();
+        return c;
+    }
+
+    static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Skip everything until end, included.
+     */
+    void skipPast(String end) throws IOException {
+        int length = end.length(), matched = 0;
+        while (matched < length) {
+            int c = next();
+            if (c == end.charAt(matched)) {
+                matched++;
+            } else if (c == end.charAt(0)) {
+                // e.g. "--->" or "]]]>", the first chars repeat
+                if (matched == 0 || end.charAt(matched - 1) != c) matched = 1;
+            } else {
+                matched = 0;
+            }
+        }
+    }
+
+    /**
+     * @return next char, or -1 at the end of the file
+     */
+    int read() throws IOException {
+        if (position == limit) {
+            int count;
+            do count = reader.read(buffer, 0, buffer.length); while (count == 0);
+            if (count < 0) return -1;
+            position = 0;
+            limit = count;
+            charCount += count;
+        }
+        char c = buffer[position++];
+        if (c == '\n') line++;
+        return c;
+    }
+
+    /**
+     * @return next char, which must be there as a tag is not finished
+     */
+    int next() throws IOException {
+        int c = read();
+        if (c == -1) throw error("unexpected end of file");
+        return c;
+    }
+
+    SerializationException error(String message) {
+        return new SerializationException("Error parsing XML on line " + line + ", " + message);
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Null;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.XmlReader;
+
+/**
+ * Computed style of an element: its own presentation attributes, the rest inherited from its parent.
+ * Resolved once per element, top down, so looking up a property never walks up the tree.
+ * An element without any presentation attribute shares the style of its parent.
+ */
+class SvgStyle {
+    /**
+     * Attributes which make an element need a style of its own.
+     */
+    static final ObjectSet<String> PROPERTIES = ObjectSet.with("fill", "stroke", "color", "fill-rule", "stroke-width",
+            "stroke-linejoin", "stroke-linecap", "stroke-miterlimit");
+
+    /**
+     * Colors are packed RGBA8888, transparent if not painted, e.g. {@code none} or an unknown {@code url(#gradient)}.
+     * color is the one used by {@code currentColor}.
+     */
+    final int color, fill, stroke;
+    /**
+     * Whether fill or stroke is {@code currentColor}, which follows {@link #color} of the element using it.
+     */
+    final boolean fillCurrentColor, strokeCurrentColor;
+    final ScanlineRasterizer.FillRule fillRule;
+    /**
+     * In user units, or NaN if not given anywhere.
+     */
+    final float strokeWidth;
+    final Stroker.LineJoin lineJoin;
+    final Stroker.LineCap lineCap;
+    final float miterLimit;
+    /**
+     * What percentages of stroke-width refer to: the diagonal of the viewport.
+     */
+    final float percentBasis;
+
+    /**
+     * Style of the root, which inherits defaults.
+     */
+    SvgStyle(XmlReader.Element root, float percentBasis) {
+        this.percentBasis = percentBasis;
+        int defaultColor = Color.rgba8888(Svg2Pixmap.defaultColor);
+        String value = root.getAttribute("color", null);
+        color = value == null || isCurrentColor(value) ? defaultColor : parseColor(value);
+        value = root.getAttribute("fill", null);
+        fillCurrentColor = value != null && isCurrentColor(value);
+        fill = value == null ? defaultColor : fillCurrentColor ? 0 : parseColor(value);
+        value = root.getAttribute("stroke", null);
+        strokeCurrentColor = value != null && isCurrentColor(value);
+        stroke = value == null ? defaultColor : strokeCurrentColor ? 0 : parseColor(value);
+        fillRule = ScanlineRasterizer.FillRule.parse(root.getAttribute("fill-rule", null));
+        value = root.getAttribute("stroke-width", null);
+        strokeWidth = value == null ? Float.NaN : parseLength(value, percentBasis);
+        lineJoin = Stroker.LineJoin.parse(root.getAttribute("stroke-linejoin", null));
+        lineCap = Stroker.LineCap.parse(root.getAttribute("stroke-linecap", null));
+        miterLimit = parseMiterLimit(root.getAttribute("stroke-miterlimit", null), 4);
+    }
+
+    SvgStyle(SvgStyle parent, XmlReader.Element element) {
+        percentBasis = parent.percentBasis;
+        String value = element.getAttribute("color", null);
+        color = value == null || isCurrentColor(value) ? parent.color : parseColor(value);
+        value = element.getAttribute("fill", null);
+        if (value == null) {
+            fill = parent.fill;
+            fillCurrentColor = parent.fillCurrentColor;
+        } else {
+            fillCurrentColor = isCurrentColor(value);
+            fill = fillCurrentColor ? 0 : parseColor(value);
+        }
+        value = element.getAttribute("stroke", null);
+        if (value == null) {
+            stroke = parent.stroke;
+            strokeCurrentColor = parent.strokeCurrentColor;
+        } else {
+            strokeCurrentColor = isCurrentColor(value);
+            stroke = strokeCurrentColor ? 0 : parseColor(value);
+        }
+        value = element.getAttribute("fill-rule", null);
+        fillRule = value == null ? parent.fillRule : ScanlineRasterizer.FillRule.parse(value);
+        value = element.getAttribute("stroke-width", null);
+        strokeWidth = value == null ? parent.strokeWidth : parseLength(value, percentBasis);
+        value = element.getAttribute("stroke-linejoin", null);
+        lineJoin = value == null ? parent.lineJoin : Stroker.LineJoin.parse(value);
+        value = element.getAttribute("stroke-linecap", null);
+        lineCap = value == null ? parent.lineCap : Stroker.LineCap.parse(value);
+        miterLimit = parseMiterLimit(element.getAttribute("stroke-miterlimit", null), parent.miterLimit);
+    }
+
+    /**
+     * @return the style of element, which is parent itself if element has no presentation attribute.
+     */
+    static SvgStyle of(SvgStyle parent, XmlReader.Element element) {
+        ObjectMap<String, String> attributes = element.getAttributes();
+        if (attributes == null) return parent;
+        for (ObjectMap.Entry<String, String> entry : attributes) {
+            if (PROPERTIES.contains(entry.key)) return new SvgStyle(parent, element);
+        }
+        return parent;
+    }
+
+    int getFill() {
+        return fillCurrentColor ? color : fill;
+    }
+
+    int getStroke() {
+        return strokeCurrentColor ? color : stroke;
+    }
+
+    /**
+     * @return a new Color of rgba, or null if it is transparent, as nothing is painted then.
+     */
+    @Null
+    static Color toColor(int rgba) {
+        return (rgba & 0xff) == 0 ? null : new Color(rgba);
+    }
+
+    static boolean isCurrentColor(String value) {
+        return value.length() == 12 && value.equalsIgnoreCase("currentColor");
+    }
+
+    /**
+     * @return transparent if unknown.
+     */
+    static int parseColor(String value) {
+        return H.parseColor(value.trim(), 0);
+    }
+
+    static float parseLength(String value, float percentBasis) {
+        return (float) H.svgReadDouble(value, percentBasis);
+    }
+
+    static float parseMiterLimit(@Null String value, float defaultValue) {
+        if (value == null) return defaultValue;
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
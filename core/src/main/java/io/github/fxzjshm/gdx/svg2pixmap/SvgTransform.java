@@ -0,0 +1,70 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.MathUtils;
+
+/**
+ * Parses the {@code transform} attribute, e.g. {@code "translate(10, 20) rotate(45)"}.
+ *
+ * @see <a href="https://www.w3.org/TR/SVG11/coords.html#TransformAttribute">The transform attribute</a>
+ */
+class SvgTransform {
+
+    /**
+     * Multiply out by the transforms listed in value, in order, i.e. the last one is applied to points first.
+     *
+     * @return out
+     */
+    static Affine2 parse(CharSequence value, Affine2 out) {
+        SvgPath.Lexer lexer = new SvgPath.Lexer(value, "transform");
+        Affine2 op = new Affine2();
+        float[] args = new float[6];
+        while (lexer.skipSeparators()) {
+            int start = lexer.index;
+            while (lexer.index < lexer.length && Character.isLetter(value.charAt(lexer.index))) lexer.index++;
+            String name = value.subSequence(start, lexer.index).toString();
+            lexer.skipSeparators();
+            if (lexer.index >= lexer.length || value.charAt(lexer.index) != '(') {
+                throw new IllegalArgumentException("Expect '(' at position " + lexer.index + " in transform \"" + value + "\"");
+            }
+            lexer.index++;
+            int count = 0;
+            while (lexer.skipSeparators() && value.charAt(lexer.index) != ')') {
+                if (count == args.length) {
+                    throw new IllegalArgumentException("Too many arguments at position " + lexer.index + " in transform \"" + value + "\"");
+                }
+                args[count++] = lexer.number();
+            }
+            if (lexer.index >= lexer.length) {
+                throw new IllegalArgumentException("Expect ')' at the end of transform \"" + value + "\"");
+            }
+            lexer.index++;
+
+            op.idt();
+            if (name.equals("matrix") && count == 6) {
+                op.m00 = args[0];
+                op.m10 = args[1];
+                op.m01 = args[2];
+                op.m11 = args[3];
+                op.m02 = args[4];
+                op.m12 = args[5];
+            } else if (name.equals("translate") && (count == 1 || count == 2)) {
+                op.setToTranslation(args[0], count == 2 ? args[1] : 0);
+            } else if (name.equals("scale") && (count == 1 || count == 2)) {
+                op.setToScaling(args[0], count == 2 ? args[1] : args[0]);
+            } else if (name.equals("rotate") && (count == 1 || count == 3)) {
+                if (count == 3) op.setToTranslation(args[1], args[2]);
+                op.rotate(args[0]);
+                if (count == 3) op.translate(-args[1], -args[2]);
+            } else if (name.equals("skewX") && count == 1) {
+                op.m01 = (float) Math.tan(args[0] * MathUtils.degreesToRadians);
+            } else if (name.equals("skewY") && count == 1) {
+                op.m10 = (float) Math.tan(args[0] * MathUtils.degreesToRadians);
+            } else {
+                throw new IllegalArgumentException("Unknown transform " + name + " with " + count + " arguments in \"" + value + "\"");
+            }
+            out.mul(op);
+        }
+        return out;
+    }
+}
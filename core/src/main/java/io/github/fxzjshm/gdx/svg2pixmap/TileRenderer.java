@@ -0,0 +1,130 @@
+package io.github.fxzjshm.gdx.svg2pixmap;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Render all shapes of a large document in parallel, into the same Pixmap, without locking.
+ * <p>
+ * Every shape is flattened once into its own {@link ScanlineRasterizer}s, called layers here.
+ * The area is cut into tiles of {@link #tileHeight} rows, and every tile is given the layers whose edges touch it, in paint order.
+ * Then tiles are filled on {@link Parallel#executor}, each writing its own rows only.
+ * As every row is computed from the edges alone, the result is the same as drawing shape by shape on one thread.
+ */
+public class TileRenderer {
+    /**
+     * Documents drawn onto at least this many pixels are rendered by tiles, smaller ones shape by shape.
+     */
+    public static int minPixels = 512 * 512;
+
+    /**
+     * Rows per tile. Tiles are as wide as the area drawn, so that rows are never split.
+     */
+    public static int tileHeight = 32;
+
+    final Array<ScanlineRasterizer> layers = new Array<>();
+    final Array<Color> colors = new Array<>();
+    final Array<ScanlineRasterizer.FillRule> fillRules = new Array<>();
+    long edgeCount = 0;
+
+    /**
+     * Whether drawing onto width x height pixels is worth tiling, whatever the format of the Pixmap:
+     * every format is written directly by {@link SpanWriter}, never through the native Pixmap which is not thread safe.
+     */
+    static boolean shouldTile(int width, int height) {
+        return (long) width * height >= minPixels;
+    }
+
+    /**
+     * Flatten a path into layers of its fill and stroke, as {@link Svg2Pixmap#drawPath} would draw it.
+     */
+    void add(SvgPath path, float originX, float originY, float scaleX, float scaleY,
+             Color fill, ScanlineRasterizer.FillRule fillRule, Color stroke, float strokeWidth,
+             Stroker.LineJoin lineJoin, Stroker.LineCap lineCap, float miterLimit) {
+        float scaledStrokeWidth = (float) (strokeWidth * Math.sqrt(Math.abs(scaleX * scaleY)));
+        boolean doFill = fill != null && !fill.equals(Color.CLEAR),
+                doStroke = stroke != null && !stroke.equals(Color.CLEAR) && scaledStrokeWidth > 0;
+        ScanlineRasterizer rasterizer = newLayer();
+        ScanlineRasterizer strokeRasterizer = doStroke ? newLayer() : null;
+        ScratchArena arena = ScratchArena.acquire();
+        try {
+            Stroker stroker = doStroke ? arena.stroker(strokeRasterizer, scaledStrokeWidth, lineJoin, lineCap, miterLimit) : null;
+            Svg2Pixmap.flattenPath(path, originX, originY, scaleX, scaleY, rasterizer, stroker);
+        } finally {
+            arena.release();
+        }
+        if (doFill) add(rasterizer, fill, fillRule);
+        if (doStroke) add(strokeRasterizer, stroke, ScanlineRasterizer.FillRule.NONZERO);
+    }
+
+    /**
+     * @return an empty layer to flatten a fill or a stroke into, without buffers of its own as tiles fill it with theirs
+     */
+    ScanlineRasterizer newLayer() {
+        return new ScanlineRasterizer(null);
+    }
+
+    /**
+     * Add a layer on top of the ones added before.
+     */
+    void add(ScanlineRasterizer rasterizer, Color color, ScanlineRasterizer.FillRule fillRule) {
+        rasterizer.close();
+        if (rasterizer.getEdgeCount() == 0) return;
+        layers.add(rasterizer);
+        colors.add(color);
+        fillRules.add(fillRule);
+        edgeCount += rasterizer.getEdgeCount();
+    }
+
+    /**
+     * Fill every layer into [x, x + width) x [y, y + height) of pixmap, clipped to the pixmap.
+     */
+    void render(Pixmap pixmap, int x, int y, int width, int height) {
+        render(pixmap, x, y, width, height, Svg2Pixmap.antiAliasing == Svg2Pixmap.AntiAliasing.COVERAGE);
+    }
+
+    /**
+     * Same as above, with coverage fill if coverage, else aliased fill.
+     */
+    void render(final Pixmap pixmap, int x, int y, int width, int height, final boolean coverage) {
+        final int left = Math.max(0, x), right = Math.min(pixmap.getWidth(), x + width);
+        final int top = Math.max(0, y), bottom = Math.min(pixmap.getHeight(), y + height);
+        if (left >= right || top >= bottom || layers.size == 0) return;
+        height = bottom - top;
+        final int rows = tileHeight;
+        int tiles = (height + rows - 1) / rows;
+
+        // bin layers into tiles they touch, so that a tile skips others without looking at them
+        final IntArray[] bins = new IntArray[tiles];
+        for (int t = 0; t < tiles; t++) bins[t] = new IntArray();
+        for (int i = 0; i < layers.size; i++) {
+            ScanlineRasterizer layer = layers.get(i);
+            int first = Math.max(0, ((int) Math.floor(layer.minY) - top) / rows);
+            int last = Math.min(tiles - 1, ((int) Math.ceil(layer.maxY) - top) / rows);
+            for (int t = first; t <= last; t++) bins[t].add(i);
+        }
+
+        Parallel.forRows(tiles, (start, end) -> {
+            ScratchArena scratch = ScratchArena.acquire();
+            try {
+                for (int t = start; t < end; t++) {
+                    int tileTop = top + t * rows, tileBottom = Math.min(bottom, tileTop + rows);
+                    IntArray bin = bins[t];
+                    for (int k = 0; k < bin.size; k++) {
+                        int i = bin.get(k);
+                        ScanlineRasterizer layer = layers.get(i);
+                        if (coverage) {
+                            layer.fillCoverage(pixmap, colors.get(i), fillRules.get(i), left, tileTop, right, tileBottom, scratch);
+                        } else {
+                            layer.fill(pixmap, colors.get(i), fillRules.get(i), left, tileTop, right, tileBottom, scratch);
+                        }
+                    }
+                }
+            } finally {
+                scratch.release();
+            }
+        });
+    }
+}
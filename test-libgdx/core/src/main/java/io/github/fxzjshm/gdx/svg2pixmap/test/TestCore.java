@@ -14,21 +14,43 @@ import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.Scaling;
+import com.badlogic.gdx.utils.SerializationException;
 import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.XmlReader;
 import com.badlogic.gdx.utils.async.AsyncExecutor;
-import com.badlogic.gdx.utils.async.ThreadUtils;
+import com.badlogic.gdx.utils.async.AsyncResult;
 import com.badlogic.gdx.utils.reflect.ClassReflection;
 import com.badlogic.gdx.utils.reflect.ReflectionException;
 import com.badlogic.gdx.utils.viewport.ScalingViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.List;
 
+import io.github.fxzjshm.gdx.svg2pixmap.AlphaMask;
+import io.github.fxzjshm.gdx.svg2pixmap.ArcConverter;
+import io.github.fxzjshm.gdx.svg2pixmap.DistanceField;
+import io.github.fxzjshm.gdx.svg2pixmap.Flattener;
+import io.github.fxzjshm.gdx.svg2pixmap.H;
+import io.github.fxzjshm.gdx.svg2pixmap.PixmapCache;
+import io.github.fxzjshm.gdx.svg2pixmap.ScanlineRasterizer;
+import io.github.fxzjshm.gdx.svg2pixmap.Stroker;
 import io.github.fxzjshm.gdx.svg2pixmap.Svg2Pixmap;
+import io.github.fxzjshm.gdx.svg2pixmap.SvgArcToCubicBezier;
+import io.github.fxzjshm.gdx.svg2pixmap.SvgAtlas;
+import io.github.fxzjshm.gdx.svg2pixmap.SvgDocument;
+import io.github.fxzjshm.gdx.svg2pixmap.SvgPath;
+import io.github.fxzjshm.gdx.svg2pixmap.TileRenderer;
 
 /**
  * {@link com.badlogic.gdx.ApplicationListener} implementation shared by all platforms.
@@ -61,8 +83,28 @@ public class TestCore extends ApplicationAdapter {
         Gdx.app.setLogLevel(Application.LOG_DEBUG);
         try {
             testPath2Pixmap();
+            testFillRule();
+            testCoverage();
+            testPixmapFormats();
+            testDownsample();
+            testPixmapCache();
+            testAtlas();
+            testStroke();
+            testPathGrammar();
+            testParseColor();
+            testShapes();
+            testArcConverter();
+            testFlattener();
+            testStreamReader();
+            testRenderListener();
+            testTransform();
+            testViewport();
+            testReadPercentage();
+            testDistanceField();
+            testAlphaMask();
             testSvg2Pixmap();
             testStandardComparison();
+            testParallelDeterminism();
         } catch (Throwable t) {
             t.printStackTrace();
             throwable = t;
@@ -151,6 +193,1015 @@ public class TestCore extends ApplicationAdapter {
         // PixmapIO.writePNG(Gdx.files.external("svgtest.png"), pixmap);
     }
 
+    public static void testFillRule() {
+        String d = "M2 2 H30 V30 H2 Z M10 10 H22 V22 H10 Z";
+        Pixmap nonzero = Svg2Pixmap.path2Pixmap(32, 32, d, Color.RED, ScanlineRasterizer.FillRule.NONZERO, Color.CLEAR, 0, new Pixmap(32, 32, Pixmap.Format.RGBA8888));
+        Pixmap evenodd = Svg2Pixmap.path2Pixmap(32, 32, d, Color.RED, ScanlineRasterizer.FillRule.EVENODD, Color.CLEAR, 0, new Pixmap(32, 32, Pixmap.Format.RGBA8888));
+        if (nonzero.getPixel(16, 16) != Color.rgba8888(Color.RED) || nonzero.getPixel(5, 5) != Color.rgba8888(Color.RED)) {
+            throw new RuntimeException("fill-rule nonzero failed");
+        }
+        if (evenodd.getPixel(16, 16) != 0 || evenodd.getPixel(5, 5) != Color.rgba8888(Color.RED)) {
+            throw new RuntimeException("fill-rule evenodd failed");
+        }
+        if (nonzero.getPixel(0, 0) != 0 || evenodd.getPixel(31, 31) != 0) {
+            throw new RuntimeException("filled outside of the shape");
+        }
+        nonzero.dispose();
+        evenodd.dispose();
+    }
+
+    public static void testCoverage() {
+        // square from (2.5, 2.5) to (6.5, 6.5): a quarter of corner pixels, half of edge pixels
+        Pixmap pixmap = new Pixmap(10, 10, Pixmap.Format.RGBA8888);
+        ScanlineRasterizer rasterizer = new ScanlineRasterizer();
+        rectangle(rasterizer, 2.5f, 2.5f, 6.5f, 6.5f, false);
+        rasterizer.fillCoverage(pixmap, Color.RED, ScanlineRasterizer.FillRule.NONZERO);
+        int[][] expected = {{1, 1, 0}, {2, 2, 64}, {3, 2, 128}, {2, 4, 128}, {4, 4, 255}, {6, 6, 64}, {6, 4, 128}, {7, 7, 0}};
+        for (int[] e : expected) {
+            int alpha = pixmap.getPixel(e[0], e[1]) & 0xff;
+            if (alpha != e[2]) {
+                throw new RuntimeException("coverage at (" + e[0] + ", " + e[1] + ") is " + alpha + ", expected " + e[2]);
+            }
+        }
+        pixmap.dispose();
+
+        // two squares overlapping in [3, 5) x [3, 5), wound the same way
+        for (ScanlineRasterizer.FillRule fillRule : ScanlineRasterizer.FillRule.values()) {
+            pixmap = new Pixmap(8, 8, Pixmap.Format.RGBA8888);
+            rasterizer.reset();
+            rectangle(rasterizer, 1, 1, 5, 5, false);
+            rectangle(rasterizer, 3, 3, 7, 7, false);
+            rasterizer.fillCoverage(pixmap, Color.RED, fillRule);
+            int overlap = pixmap.getPixel(4, 4) & 0xff, single = pixmap.getPixel(2, 2) & 0xff;
+            int expectedOverlap = fillRule == ScanlineRasterizer.FillRule.NONZERO ? 255 : 0;
+            if (overlap != expectedOverlap || single != 255 || (pixmap.getPixel(0, 0) & 0xff) != 0) {
+                throw new RuntimeException("coverage with fill-rule " + fillRule + " failed: " + overlap + ", " + single);
+            }
+            pixmap.dispose();
+        }
+
+        // axis-aligned rectangles are filled by spans, which must give the same pixels as the general path
+        float[][] rectangles = {{2.5f, 2.5f, 6.5f, 6.5f}, {1.3f, 0.6f, 7.8f, 5.25f}, {0.2f, 3.9f, 0.7f, 9.1f}, {-1.5f, -2, 4.25f, 3.75f}};
+        for (float[] r : rectangles) {
+            Pixmap fast = new Pixmap(10, 10, Pixmap.Format.RGBA8888), general = new Pixmap(10, 10, Pixmap.Format.RGBA8888);
+            rasterizer.reset();
+            rectangle(rasterizer, r[0], r[1], r[2], r[3], false);
+            rasterizer.fillCoverage(fast, Color.RED, ScanlineRasterizer.FillRule.NONZERO);
+            rasterizer.reset();
+            rectangle(rasterizer, r[0], r[1], r[2], r[3], true);
+            rasterizer.fillCoverage(general, Color.RED, ScanlineRasterizer.FillRule.NONZERO);
+            for (int y = 0; y < 10; y++) {
+                for (int x = 0; x < 10; x++) {
+                    if (fast.getPixel(x, y) != general.getPixel(x, y)) {
+                        throw new RuntimeException("rectangle coverage differs at (" + x + ", " + y + "): "
+                                + Integer.toHexString(fast.getPixel(x, y)) + " vs " + Integer.toHexString(general.getPixel(x, y)));
+                    }
+                }
+            }
+            fast.dispose();
+            general.dispose();
+        }
+    }
+
+    /**
+     * Spans are written into the pixels of every format directly, which must give the same bytes as gdx2d filling them.
+     */
+    public static void testPixmapFormats() {
+        // a fully transparent paint draws nothing at all, so the least opaque one here is 1
+        int[] colors = {0x3c8ae0ff, 0x3c8ae07f, 0xc0ffee10, 0xff00ff01};
+        ScanlineRasterizer rasterizer = new ScanlineRasterizer();
+        rectangle(rasterizer, 3, 2, 13, 7, false);
+        for (Pixmap.Format format : Pixmap.Format.values()) {
+            for (Pixmap.Blending blending : Pixmap.Blending.values()) {
+                for (int color : colors) {
+                    Pixmap expected = new Pixmap(16, 9, format), actual = new Pixmap(16, 9, format);
+                    for (Pixmap pixmap : new Pixmap[]{expected, actual}) {
+                        pixmap.setBlending(Pixmap.Blending.None);
+                        for (int y = 0; y < 9; y++) {
+                            for (int x = 0; x < 16; x++) pixmap.drawPixel(x, y, (x * 41 + y * 7) % 256 << 24 | (x * y * 13) % 256 << 16 | (x + y * 29) % 256 << 8 | (x * 17 + y * 31) % 256);
+                        }
+                        pixmap.setBlending(blending);
+                    }
+                    expected.setColor(color);
+                    expected.fillRectangle(3, 2, 10, 5);
+                    rasterizer.fill(actual, new Color(color), ScanlineRasterizer.FillRule.NONZERO);
+                    ByteBuffer e = expected.getPixels(), a = actual.getPixels();
+                    for (int i = 0; i < e.capacity(); i++) {
+                        if (e.get(i) != a.get(i)) {
+                            throw new RuntimeException("filling " + Integer.toHexString(color) + " onto " + format + " with blending " + blending
+                                    + " differs from gdx2d at byte " + i + ": " + (a.get(i) & 0xff) + ", expected " + (e.get(i) & 0xff));
+                        }
+                    }
+                    expected.dispose();
+                    actual.dispose();
+                }
+            }
+        }
+    }
+
+    /**
+     * A rectangle, clockwise. With split, the right side is split into two edges, so that it is not filled as a rectangle.
+     */
+    static void rectangle(ScanlineRasterizer rasterizer, float left, float top, float right, float bottom, boolean split) {
+        rasterizer.moveTo(left, top);
+        rasterizer.lineTo(right, top);
+        if (split) rasterizer.lineTo(right, (top + bottom) / 2);
+        rasterizer.lineTo(right, bottom);
+        rasterizer.lineTo(left, bottom);
+        rasterizer.close();
+    }
+
+    public static void testDownsample() {
+        for (int scale : new int[]{2, 3, 5, 7}) {
+            // a block of one opaque color stays exactly that color
+            Pixmap src = new Pixmap(4 * scale, 3 * scale, Pixmap.Format.RGBA8888), dst = new Pixmap(4, 3, Pixmap.Format.RGBA8888);
+            int color = 0xc86432ff;
+            src.setColor(color);
+            src.fill();
+            H.downsample(src, dst, scale, 0, dst.getHeight());
+            for (int y = 0; y < dst.getHeight(); y++) {
+                for (int x = 0; x < dst.getWidth(); x++) {
+                    if (dst.getPixel(x, y) != color) {
+                        throw new RuntimeException("downsample by " + scale + " turned opaque " + Integer.toHexString(color)
+                                + " into " + Integer.toHexString(dst.getPixel(x, y)));
+                    }
+                }
+            }
+
+            // every channel is the rounded average of its block
+            src.setBlending(Pixmap.Blending.None);
+            for (int y = 0; y < src.getHeight(); y++) {
+                for (int x = 0; x < src.getWidth(); x++) {
+                    src.drawPixel(x, y, (x * 37 + y * 11) % 256 << 24 | (x * y * 5) % 256 << 16 | (x + y * 53) % 256 << 8 | (x * 97 + y) % 256);
+                }
+            }
+            H.downsample(src, dst, scale, 0, dst.getHeight());
+            for (int y = 0; y < dst.getHeight(); y++) {
+                for (int x = 0; x < dst.getWidth(); x++) {
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        int sum = 0;
+                        for (int j = 0; j < scale; j++) {
+                            for (int i = 0; i < scale; i++) sum += src.getPixel(x * scale + i, y * scale + j) >>> shift & 0xff;
+                        }
+                        int expected = (sum + scale * scale / 2) / (scale * scale), actual = dst.getPixel(x, y) >>> shift & 0xff;
+                        if (actual != expected) {
+                            throw new RuntimeException("downsample by " + scale + " at (" + x + ", " + y + "): " + actual + ", expected " + expected);
+                        }
+                    }
+                }
+            }
+            src.dispose();
+            dst.dispose();
+        }
+    }
+
+    /**
+     * Icons of mixed sizes, more than a page can hold, each covering its whole region so that any overlap or
+     * missing padding shows up in pixels.
+     */
+    public static void testAtlas() {
+        String head = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 16 16\" stroke=\"none\" stroke-width=\"1\">"
+                + "<rect x=\"0\" y=\"0\" width=\"16\" height=\"16\" fill=\"#f00\"/>";
+        SvgDocument[] documents = {
+                SvgDocument.parse(head + "<circle cx=\"8\" cy=\"8\" r=\"5\" fill=\"#00f\"/></svg>"),
+                SvgDocument.parse(head + "<path d=\"M0 16 L8 1 L16 16 Z\" fill=\"#0f08\"/></svg>")
+        };
+        int[][] sizes = {{40, 20}, {30, 30}, {20, 40}, {16, 16}, {50, 10}, {24, 24}, {10, 50}, {12, 12}, {7, 9}};
+        int pageSize = 64, padding = 2;
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        try {
+            for (Svg2Pixmap.AntiAliasing mode : Svg2Pixmap.AntiAliasing.values()) {
+                Svg2Pixmap.antiAliasing = mode;
+                SvgAtlas atlas = new SvgAtlas(pageSize, pageSize, padding);
+                for (int i = 0; i < sizes.length; i++) atlas.add("icon" + i, documents[i % 2], sizes[i][0], sizes[i][1]);
+                atlas.render();
+                if (atlas.getPages().size < 2) throw new RuntimeException("atlas in " + mode + " has " + atlas.getPages().size + " pages, expected more than one");
+
+                for (int i = 0; i < sizes.length; i++) {
+                    String name = "icon" + i;
+                    Rectangle rect = atlas.getRect(name);
+                    if (rect == null || rect.width != sizes[i][0] || rect.height != sizes[i][1]) {
+                        throw new RuntimeException(name + " in " + mode + " is at " + rect + ", expected size " + sizes[i][0] + "x" + sizes[i][1]);
+                    }
+                    if (rect.x < padding || rect.y < padding || rect.x + rect.width + padding > pageSize || rect.y + rect.height + padding > pageSize) {
+                        throw new RuntimeException(name + " in " + mode + " at " + rect + " is not padded from the edges of its page");
+                    }
+                    // grown by padding, a region may touch but not overlap another one
+                    Rectangle padded = new Rectangle(rect.x - padding, rect.y - padding, rect.width + 2 * padding, rect.height + 2 * padding);
+                    for (int j = 0; j < i; j++) {
+                        String other = "icon" + j;
+                        if (atlas.getPage(other) == atlas.getPage(name) && padded.overlaps(atlas.getRect(other))) {
+                            throw new RuntimeException(name + " at " + rect + " is closer than padding to " + other + " at "
+                                    + atlas.getRect(other) + " in " + mode);
+                        }
+                    }
+
+                    Pixmap alone = Svg2Pixmap.svg2Pixmap(documents[i % 2], sizes[i][0], sizes[i][1]);
+                    Pixmap page = atlas.getPage(name).getPixmap();
+                    for (int y = 0; y < alone.getHeight(); y++) {
+                        for (int x = 0; x < alone.getWidth(); x++) {
+                            int expected = alone.getPixel(x, y), actual = page.getPixel((int) rect.x + x, (int) rect.y + y);
+                            // regions are drawn at an offset, which may round coverage by one the other way
+                            for (int shift = 0; shift < 32; shift += 8) {
+                                if (Math.abs((expected >>> shift & 0xff) - (actual >>> shift & 0xff)) > 1) {
+                                    throw new RuntimeException(name + " in " + mode + " at (" + x + ", " + y + "): " + Integer.toHexString(actual)
+                                            + ", rendered alone " + Integer.toHexString(expected));
+                                }
+                            }
+                        }
+                    }
+                    alone.dispose();
+                }
+
+                // every pixel out of regions, i.e. padding and space left, is untouched
+                for (SvgAtlas.Page page : atlas.getPages()) {
+                    for (int y = 0; y < pageSize; y++) {
+                        for (int x = 0; x < pageSize; x++) {
+                            boolean inside = false;
+                            for (Rectangle rect : page.getRects().values()) inside |= rect.contains(x + 0.5f, y + 0.5f);
+                            if (!inside && page.getPixmap().getPixel(x, y) != 0) {
+                                throw new RuntimeException("pixel (" + x + ", " + y + ") out of regions drawn in " + mode + ": "
+                                        + Integer.toHexString(page.getPixmap().getPixel(x, y)));
+                            }
+                        }
+                    }
+                }
+                atlas.dispose();
+            }
+        } finally {
+            Svg2Pixmap.antiAliasing = antiAliasing;
+        }
+    }
+
+    public static void testPixmapCache() {
+        // same length, different content, 8 x 8 RGBA8888 is 256 bytes
+        String a = "<svg viewBox=\"0 0 8 8\" stroke-width=\"0\"><rect x=\"1\" y=\"1\" width=\"6\" height=\"6\" fill=\"#f00\"/></svg>";
+        String b = "<svg viewBox=\"0 0 8 8\" stroke-width=\"0\"><rect x=\"2\" y=\"2\" width=\"4\" height=\"4\" fill=\"#00f\"/></svg>";
+        PixmapCache cache = new PixmapCache(300);
+
+        Pixmap pixmapA = cache.obtain(a, 8, 8);
+        if (cache.obtain(a, 8, 8) != pixmapA) throw new RuntimeException("cache missed the same file");
+        check(cache.getHits() == 1 && cache.getMisses() == 1 && cache.getSize() == 1 && cache.getBytes() == 256, "counters after a hit", cache);
+        cache.free(pixmapA);
+
+        // only one fits, so b evicts a, which is still obtained once
+        Pixmap pixmapB = cache.obtain(b, 8, 8);
+        if (pixmapB == pixmapA) throw new RuntimeException("cache mixed up two files of the same length");
+        check(cache.getMisses() == 2 && cache.getEvictions() == 1 && cache.getSize() == 1, "counters after an eviction", cache);
+        if (pixmapA.isDisposed()) throw new RuntimeException("cache disposed a Pixmap still obtained");
+        cache.free(pixmapA);
+        if (!pixmapA.isDisposed()) throw new RuntimeException("cache did not dispose an evicted Pixmap once freed");
+        boolean thrown = false;
+        try {
+            cache.free(pixmapA);
+        } catch (GdxRuntimeException e) {
+            thrown = true;
+        }
+        if (!thrown) throw new RuntimeException("freeing an evicted Pixmap again did not throw");
+        if (cache.obtain(b, 8, 8) != pixmapB) throw new RuntimeException("cache missed the file it kept");
+        cache.free(pixmapB);
+        cache.free(pixmapB);
+        cache.dispose();
+        if (!pixmapB.isDisposed()) throw new RuntimeException("cache did not dispose its Pixmaps");
+
+        // larger than the whole budget: handed out, not cached
+        cache = new PixmapCache(100);
+        Pixmap large = cache.obtain(a, 8, 8);
+        if (large.isDisposed()) throw new RuntimeException("cache returned a disposed Pixmap");
+        check(cache.getSize() == 0 && cache.getBytes() == 0 && cache.getEvictions() == 0, "counters of a Pixmap over the budget", cache);
+        cache.free(large);
+        if (!large.isDisposed()) throw new RuntimeException("cache did not dispose a Pixmap over the budget once freed");
+    }
+
+    static void check(boolean condition, String what, PixmapCache cache) {
+        if (!condition) {
+            throw new RuntimeException("PixmapCache " + what + ": hits " + cache.getHits() + ", misses " + cache.getMisses()
+                    + ", evictions " + cache.getEvictions() + ", size " + cache.getSize() + ", bytes " + cache.getBytes());
+        }
+    }
+
+    /**
+     * Every pixel checked is wholly inside or outside of what is drawn, so both anti-aliasing modes must give 255 or 0.
+     */
+    public static void testStroke() {
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        try {
+            for (Svg2Pixmap.AntiAliasing mode : Svg2Pixmap.AntiAliasing.values()) {
+                Svg2Pixmap.antiAliasing = mode;
+                // a corner of 90 degrees at (10, 10), 12 wide: the miter is the square [4, 10]^2, the round join a circle of radius 6,
+                // the bevel the triangle of (10, 4), (4, 10) and (10, 10)
+                String corner = "M10 30 L10 10 L30 10";
+                Stroker.LineJoin miter = Stroker.LineJoin.MITER, round = Stroker.LineJoin.ROUND, bevel = Stroker.LineJoin.BEVEL;
+                Stroker.LineCap butt = Stroker.LineCap.BUTT;
+                checkStroke(corner, 12, miter, butt, 4, new int[][]{{8, 7, 255}, {6, 6, 255}, {4, 4, 255}, {2, 2, 0}}, "miter join");
+                checkStroke(corner, 12, round, butt, 4, new int[][]{{8, 7, 255}, {6, 6, 255}, {4, 4, 0}}, "round join");
+                checkStroke(corner, 12, bevel, butt, 4, new int[][]{{8, 7, 255}, {6, 6, 0}, {4, 4, 0}}, "bevel join");
+                // the miter of 90 degrees is sqrt(2) times the width, over this limit it falls back to bevel
+                checkStroke(corner, 12, miter, butt, 1.2f, new int[][]{{8, 7, 255}, {6, 6, 0}, {4, 4, 0}}, "miter join over miterlimit");
+
+                // a line from (10, 16) to (22, 16), 8 wide
+                String line = "M10 16 L22 16";
+                checkStroke(line, 8, miter, butt, 4, new int[][]{{10, 15, 255}, {7, 15, 0}, {24, 15, 0}, {6, 12, 0}}, "butt cap");
+                checkStroke(line, 8, miter, Stroker.LineCap.ROUND, 4, new int[][]{{10, 15, 255}, {7, 15, 255}, {24, 15, 255}, {6, 12, 0}}, "round cap");
+                checkStroke(line, 8, miter, Stroker.LineCap.SQUARE, 4, new int[][]{{10, 15, 255}, {7, 15, 255}, {24, 15, 255}, {6, 12, 255}, {4, 15, 0}}, "square cap");
+
+                // sub-paths of zero length are dots of their caps, nothing if butt
+                for (String dot : new String[]{"M16 16 L16 16", "M16 16 Z"}) {
+                    checkStroke(dot, 8, miter, butt, 4, new int[][]{{15, 15, 0}}, "butt dot " + dot);
+                    checkStroke(dot, 8, miter, Stroker.LineCap.ROUND, 4, new int[][]{{15, 15, 255}, {13, 15, 255}, {19, 19, 0}}, "round dot " + dot);
+                    checkStroke(dot, 8, miter, Stroker.LineCap.SQUARE, 4, new int[][]{{15, 15, 255}, {19, 19, 255}, {21, 21, 0}}, "square dot " + dot);
+                }
+
+                // pieces overlapping each other add up instead of cancelling: joins turning either way are put over
+                // the stroke of another sub-path, going through the miter at (6, 6)
+                checkStroke("M4 16 L28 16 L4 16", 6, miter, butt, 4, new int[][]{{16, 15, 255}, {16, 11, 0}}, "line going back");
+                checkStroke(corner + " M6 0 L6 8", 12, miter, butt, 4, new int[][]{{6, 6, 255}, {4, 4, 255}}, "right turn over a line");
+                checkStroke("M30 10 L10 10 L10 30 M6 0 L6 8", 12, miter, butt, 4, new int[][]{{6, 6, 255}, {4, 4, 255}}, "left turn over a line");
+            }
+        } finally {
+            Svg2Pixmap.antiAliasing = antiAliasing;
+        }
+    }
+
+    /**
+     * Stroke d onto 32 x 32 pixels, unscaled, and check the alpha of pixels given as {x, y, alpha}.
+     */
+    static void checkStroke(String d, float width, Stroker.LineJoin lineJoin, Stroker.LineCap lineCap, float miterLimit, int[][] pixels, String what) {
+        Pixmap pixmap = new Pixmap(32, 32, Pixmap.Format.RGBA8888);
+        Svg2Pixmap.drawPath(SvgPath.parse(d), 0, 0, 1, 1, null, ScanlineRasterizer.FillRule.NONZERO, Color.BLACK, width,
+                lineJoin, lineCap, miterLimit, pixmap);
+        for (int[] p : pixels) checkAlpha(pixmap, p[0], p[1], p[2], what + " in " + Svg2Pixmap.antiAliasing);
+        pixmap.dispose();
+    }
+
+    public static void testParseColor() {
+        int none = 0x12345678;
+        Object[][] colors = {
+                // named, in any case
+                {"red", 0xff0000ff}, {"Navy", 0x000080ff}, {"olive", 0x808000ff}, {"none", 0}, {"transparent", 0},
+                // every length of hex
+                {"#f80", 0xff8800ff}, {"#f808", 0xff880088}, {"#ff8000", 0xff8000ff}, {"#ff800080", 0xff800080}, {"#ABCDEF", 0xabcdefff},
+                {"rgb(255, 128, 0)", 0xff8000ff}, {"rgb(255,128,0)", 0xff8000ff}, {"rgb(100%, 50%, 0%)", 0xff8000ff},
+                {"rgba(0, 0, 255, 0.5)", 0x0000ff80}, {"rgba(0%, 100%, 0%, 25%)", 0x00ff0040}, {"rgb(300, -5, 1e2)", 0xff0064ff},
+                // not colors, or malformed
+                {"", none}, {"#", none}, {"#f", none}, {"#ff", none}, {"#ff800", none}, {"#ff80008", none}, {"#ff8000800", none},
+                {"#ggg", none}, {"url(#gradient)", none}, {"reddish", none}, {"rgb(+, 0, 0)", none}, {"rgb(., 0, 0)", none},
+                {"rgb(1, 2)", none}, {"rgba(1, 2, 3, 4, 5)", none}, {"rgb(a, b, c)", none}, {"rgb(1, 2, 3", none}, {"rgb", none},
+        };
+        for (Object[] c : colors) {
+            int rgba = H.parseColor((String) c[0], none);
+            if (rgba != (Integer) c[1]) {
+                throw new RuntimeException("color \"" + c[0] + "\": " + Integer.toHexString(rgba) + ", expected " + Integer.toHexString((Integer) c[1]));
+            }
+        }
+
+        // attributes are inherited from the nearest parent having them
+        XmlReader.Element root = new XmlReader().parse("<svg fill=\"red\" stroke=\"none\"><g stroke=\"blue\"><rect fill=\"#0f0\"/></g></svg>");
+        XmlReader.Element group = root.getChild(0), rect = group.getChild(0);
+        String[][] attributes = {
+                {H.getAttribute(rect, "fill", null), "#0f0"},
+                {H.getAttribute(rect, "stroke", null), "blue"},
+                {H.getAttribute(group, "fill", null), "red"},
+                {H.getAttribute(root, "stroke", null), "none"},
+                {H.getAttribute(rect, "stroke-width", "1"), "1"},
+                {H.getAttribute(null, "fill", "black"), "black"},
+                {H.getAttribute(rect, "stroke"), "blue"},
+        };
+        for (String[] a : attributes) {
+            if (!a[1].equals(a[0])) throw new RuntimeException("inherited attribute " + a[0] + ", expected " + a[1]);
+        }
+        if (H.getAttribute(rect, "stroke-width", null) != null) throw new RuntimeException("attribute of no element found");
+        try {
+            H.getAttribute(rect, "stroke-width");
+            throw new RuntimeException("missing attribute found");
+        } catch (GdxRuntimeException e) {
+            if (!e.getMessage().startsWith("No attribute \"stroke-width\"")) throw e;
+        }
+    }
+
+    public static void testShapes() {
+        checkOnEllipse(SvgPath.ellipse(16, 16, 10, 10), 16, 16, 10, 10);
+        checkOnEllipse(SvgPath.ellipse(-3, 5, 12, 4), -3, 5, 12, 4);
+
+        expectShape("rect", SvgPath.rect(1, 2, 10, 4, 0, 0), "MLLLZ", 1, 2, 11, 2, 11, 6, 1, 6);
+        // negative radii are 0, so is a rounded corner with one of them 0
+        expectShape("rect with negative radii", SvgPath.rect(1, 2, 10, 4, -1, -1), "MLLLZ", 1, 2, 11, 2, 11, 6, 1, 6);
+        expectShape("rect with ry 0", SvgPath.rect(1, 2, 10, 4, 3, 0), "MLLLZ", 1, 2, 11, 2, 11, 6, 1, 6);
+        expectShape("empty rect", SvgPath.rect(1, 2, 0, 4, 0, 0), "");
+        // radii clamped to half of the size: rx 8 to 5 and ry 3 to 2, every corner a quarter of ellipse of radii (5, 2)
+        SvgPath rounded = SvgPath.rect(0, 0, 10, 4, 8, 3);
+        float k = 0.551915024494f;
+        expectShape("rect with large radii", rounded, "MLCLCLCLCZ",
+                5, 0, 5, 0, 5 + 5 * k, 0, 10, 2 - 2 * k, 10, 2, 10, 2, 10, 2 + 2 * k, 5 + 5 * k, 4, 5, 4,
+                5, 4, 5 - 5 * k, 4, 0, 2 + 2 * k, 0, 2, 0, 2, 0, 2 - 2 * k, 5 - 5 * k, 0, 5, 0);
+
+        expectShape("line", SvgPath.line(1, 2, 3, 4), "ML", 1, 2, 3, 4);
+        expectShape("polyline", SvgPath.poly("1,2 3 4,5,6", false), "MLL", 1, 2, 3, 4, 5, 6);
+        expectShape("polygon", SvgPath.poly("1,2 3 4,5,6", true), "MLLZ", 1, 2, 3, 4, 5, 6);
+        // an odd coordinate at the end is ignored
+        expectShape("polyline of an odd count", SvgPath.poly("1 2 3", false), "M", 1, 2);
+        expectShape("polygon of no point", SvgPath.poly("", true), "");
+
+        // elements drawn without anti-aliasing, so a pixel is painted if its center is inside
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        try {
+            Svg2Pixmap.antiAliasing = Svg2Pixmap.AntiAliasing.SUPER_SAMPLING;
+            checkElement("<circle cx=\"16\" cy=\"16\" r=\"10\" fill=\"#000\"/>",
+                    new int[][]{{16, 16, 255}, {16, 7, 255}, {22, 22, 255}, {23, 23, 0}, {5, 16, 0}, {16, 26, 0}});
+            checkElement("<ellipse cx=\"16\" cy=\"16\" rx=\"12\" ry=\"4\" fill=\"#000\"/>",
+                    new int[][]{{27, 16, 255}, {28, 16, 0}, {16, 19, 255}, {16, 20, 0}, {4, 15, 255}, {3, 15, 0}});
+            // ry is rx if absent, both clamped to 5: the corner at (2, 2) is cut by a circle of radius 5 centered at (7, 7)
+            checkElement("<rect x=\"2\" y=\"2\" width=\"10\" height=\"10\" rx=\"8\" fill=\"#000\"/>",
+                    new int[][]{{2, 2, 0}, {2, 3, 0}, {3, 3, 255}, {7, 2, 255}, {11, 7, 255}, {12, 7, 0}, {7, 7, 255}});
+            checkElement("<line x1=\"4\" y1=\"8\" x2=\"28\" y2=\"8\" stroke=\"#000\" stroke-width=\"2\"/>",
+                    new int[][]{{16, 7, 255}, {16, 8, 255}, {16, 9, 0}, {16, 6, 0}, {3, 8, 0}, {28, 8, 0}});
+            // a polyline is not closed by its stroke, a polygon is: only the polygon strokes the diagonal back to (4, 4)
+            String points = "points=\"4,4 28,4 28,28\" fill=\"none\" stroke=\"#000\" stroke-width=\"2\"";
+            checkElement("<polyline " + points + "/>", new int[][]{{16, 4, 255}, {28, 16, 255}, {16, 16, 0}, {10, 10, 0}});
+            checkElement("<polygon " + points + "/>", new int[][]{{16, 4, 255}, {28, 16, 255}, {16, 16, 255}, {10, 10, 255}});
+            // filled, both are closed
+            checkElement("<polyline points=\"4,4 28,4 28,28\" fill=\"#000\"/>", new int[][]{{24, 12, 255}, {12, 24, 0}});
+        } finally {
+            Svg2Pixmap.antiAliasing = antiAliasing;
+        }
+    }
+
+    /**
+     * {@link ArcConverter} must give the same curves as {@link SvgArcToCubicBezier}, which it replaces.
+     */
+    public static void testArcConverter() {
+        float[][] arcs = {
+                // px, py, x, y, rx, ry, x-axis-rotation
+                {0, 0, 10, 0, 10, 5, 0},
+                {3, -2, -7, 6, 9, 4, 30},
+                {1, 1, 11, 11, 12, 7, -135.5f},
+                {0, 0, 0, 8, 6, 3, 90},
+                // negative radii are taken as positive, one or both
+                {0, 0, 10, 0, -10, -5, 0},
+                {2, 3, 12, 7, -8, 5, 20},
+                // radii too small are scaled up until the ellipse reaches the end point
+                {0, 0, 20, 0, 2, 1, 0},
+                {-5, 3, 15, 9, 1, 3, 45},
+                // nothing: zero radii, or the same start and end points
+                {0, 0, 10, 0, 0, 5, 0},
+                {0, 0, 10, 0, 10, 0, 0},
+                {4, 4, 4, 4, 10, 5, 0},
+        };
+        float[] out = new float[ArcConverter.MAX_FLOATS + 6];
+        for (float[] arc : arcs) {
+            for (int largeArc = 0; largeArc <= 1; largeArc++) {
+                for (int sweep = 0; sweep <= 1; sweep++) {
+                    String what = "arc from (" + arc[0] + ", " + arc[1] + ") to (" + arc[2] + ", " + arc[3] + ") radii (" + arc[4] + ", " + arc[5]
+                            + ") rotated by " + arc[6] + " large-arc " + largeArc + " sweep " + sweep;
+                    List<Vector2[]> expected = SvgArcToCubicBezier.arcToBezier(arc[0], arc[1], arc[2], arc[3], arc[4], arc[5], arc[6], largeArc, sweep);
+                    // written from an offset, without touching anything before or after
+                    out[2] = out[out.length - 1] = 42;
+                    int count = ArcConverter.toCubics(arc[0], arc[1], arc[2], arc[3], arc[4], arc[5], arc[6], largeArc, sweep, out, 3);
+                    if (count != expected.size() || count > 4) {
+                        throw new RuntimeException(what + " gives " + count + " curves, expected " + expected.size());
+                    }
+                    if (out[2] != 42 || out[out.length - 1] != 42) throw new RuntimeException(what + " is written out of its place");
+                    boolean nothing = arc[4] == 0 || arc[5] == 0 || (arc[0] == arc[2] && arc[1] == arc[3]);
+                    if (nothing != (count == 0)) throw new RuntimeException(what + " gives " + count + " curves");
+                    for (int i = 0; i < count; i++) {
+                        Vector2[] curve = expected.get(i);
+                        for (int j = 0; j < 3; j++) {
+                            float x = out[3 + 6 * i + 2 * j], y = out[3 + 6 * i + 2 * j + 1];
+                            if (Math.abs(x - curve[j].x) > 1e-4f || Math.abs(y - curve[j].y) > 1e-4f) {
+                                throw new RuntimeException(what + ": point " + j + " of curve " + i + " is (" + x + ", " + y + "), expected " + curve[j]);
+                            }
+                        }
+                    }
+                    if (count > 0 && (Math.abs(out[3 + 6 * count - 2] - arc[2]) > 1e-4f || Math.abs(out[3 + 6 * count - 1] - arc[3]) > 1e-4f)) {
+                        throw new RuntimeException(what + " ends at (" + out[3 + 6 * count - 2] + ", " + out[3 + 6 * count - 1] + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Every point of the 4 cubics of path must be on the ellipse, within the error of {@link SvgPath#ellipse}.
+     */
+    static void checkOnEllipse(SvgPath path, float cx, float cy, float rx, float ry) {
+        String what = "ellipse (" + cx + ", " + cy + ", " + rx + ", " + ry + ")";
+        if (!describe(path).startsWith("MCCCCZ ") || path.getCoordCount() != 26 || path.getCoord(0) != cx - rx || path.getCoord(1) != cy) {
+            throw new RuntimeException(what + " is " + describe(path) + ", expected 4 cubics from (cx - rx, cy)");
+        }
+        for (int i = 0; i < 4; i++) {
+            float[] c = new float[8];
+            for (int j = 0; j < 8; j++) c[j] = path.getCoord(6 * i + j);
+            for (int t = 0; t <= 16; t++) {
+                double[] p = cubicAt(c, t / 16.0);
+                double dx = (p[0] - cx) / rx, dy = (p[1] - cy) / ry, r = Math.sqrt(dx * dx + dy * dy);
+                if (Math.abs(r - 1) > 2e-4) throw new RuntimeException(what + " at (" + p[0] + ", " + p[1] + ") is off by " + (r - 1));
+            }
+        }
+    }
+
+    /**
+     * Draw element alone with its method in {@link Svg2Pixmap} onto 32 x 32 pixels, one unit a pixel.
+     *
+     * @param pixels {x, y, alpha} to check
+     */
+    static void checkElement(String element, int[][] pixels) {
+        XmlReader.Element root = new XmlReader().parse("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 32 32\" stroke-width=\"1\">"
+                + element + "</svg>");
+        XmlReader.Element child = root.getChild(0);
+        Pixmap pixmap = new Pixmap(32, 32, Pixmap.Format.RGBA8888);
+        String name = child.getName();
+        if (name.equals("circle")) Svg2Pixmap.circle(child, pixmap);
+        else if (name.equals("ellipse")) Svg2Pixmap.ellipse(child, pixmap);
+        else if (name.equals("rect")) Svg2Pixmap.rect(child, pixmap);
+        else if (name.equals("line")) Svg2Pixmap.line(child, pixmap);
+        else if (name.equals("polyline")) Svg2Pixmap.polyline(child, pixmap);
+        else if (name.equals("polygon")) Svg2Pixmap.polygon(child, pixmap);
+        for (int[] p : pixels) checkAlpha(pixmap, p[0], p[1], p[2], element);
+        pixmap.dispose();
+    }
+
+    public static void testPathGrammar() {
+        // implicit repeated commands, pairs after a move are lines of the same relativity
+        expectPath("M1 2 3 4 5 6", "MLL", 1, 2, 3, 4, 5, 6);
+        expectPath("m1 2 3 4l1 1 1 1", "MLLL", 1, 2, 4, 6, 5, 7, 6, 8);
+        expectPath("M1 1H5V3h-2 -1v-1", "MLLLLL", 1, 1, 5, 1, 5, 3, 3, 3, 2, 3, 2, 2);
+        expectPath("M1 1 L2 2 Z l1 0", "MLZL", 1, 1, 2, 2, 2, 1);
+        expectPath("M0 0Q3 3 6 0T12 0", "MCC", 0, 0, 2, 2, 4, 2, 6, 0, 8, -2, 10, -2, 12, 0);
+        // numbers: signs as separators, a second '.' starts the next number, exponents
+        expectPath("M-1-2L+3,-.5", "ML", -1, -2, 3, -0.5f);
+        expectPath("M1.5.5.25-.75", "ML", 1.5f, 0.5f, 0.25f, -0.75f);
+        expectPath("M1..5", "M", 1, 0.5f);
+        expectPath("M1e1 2E-1L.5e+2,0", "ML", 10, 0.2f, 50, 0);
+        // flags of arcs need no separators, arcs repeat implicitly, 180 degrees become 2 curves
+        expectPath("M0 0a1 1 0 00 2 0", "MCC", 0, 0, 0, 0.5519f, 0.4481f, 1, 1, 1, 1.5519f, 1, 2, 0.5519f, 2, 0);
+        expectPathEnd("M0 0a1 1 0 002 0", 2, 0);
+        expectPathEnd("M0 0a1 1 0 1 1 2 0 1 1 0 0 1 2 0", 4, 0);
+        expectPathEnd("M0 0A1 1 0 0,1 2,0", 2, 0);
+
+        expectPathError("1 2", "No command before position 0 in path \"1 2\"");
+        expectPathError("M0 0 Z 1 1", "No command before position 7 in path \"M0 0 Z 1 1\"");
+        expectPathError("M 1", "Expect a number at position 3 in path \"M 1\"");
+        expectPathError("M1-", "Expect a number at position 2 in path \"M1-\"");
+        expectPathError("M1 .", "Expect a number at position 3 in path \"M1 .\"");
+        expectPathError("M0 0 A1 1 0 2 1 1 1", "Expect a flag at position 12 in path \"M0 0 A1 1 0 2 1 1 1\"");
+        // "1e" without digits is no exponent, so 'e' is read as a command
+        expectPathError("M1 2e 3", "Unknown command e at position 4 in path \"M1 2e 3\"");
+        expectPathError("M0 0 X1", "Unknown command X at position 5 in path \"M0 0 X1\"");
+    }
+
+    public static void testFlattener() {
+        float tolerance = Flattener.tolerance;
+        int maxSegments = Flattener.maxSegments;
+        try {
+            float[] cubic = {0, 0, 10, 40, 50, -30, 60, 10};
+            for (float t : new float[]{0.25f, 0.05f}) {
+                Flattener.tolerance = t;
+                FloatArray points = flattenCubic(cubic);
+                int segments = points.size / 2 - 1;
+                if (segments < 2 || segments > Flattener.maxSegments) throw new RuntimeException("cubic flattened into " + segments + " segments");
+                // every point of the curve is within tolerance of the segments, and every vertex is on the curve
+                for (int i = 0; i <= 1000; i++) {
+                    double[] p = cubicAt(cubic, i / 1000.0);
+                    double distance = Double.MAX_VALUE;
+                    for (int k = 0; k + 3 < points.size; k += 2) {
+                        distance = Math.min(distance, segmentDistance(p[0], p[1], points.get(k), points.get(k + 1), points.get(k + 2), points.get(k + 3)));
+                    }
+                    if (distance > t + 1e-3) throw new RuntimeException("flattened cubic is " + distance + " from the curve at t = " + i / 1000.0 + ", tolerance " + t);
+                }
+                for (int k = 0; k <= segments; k++) {
+                    double[] p = cubicAt(cubic, (double) k / segments);
+                    if (Math.hypot(p[0] - points.get(2 * k), p[1] - points.get(2 * k + 1)) > 1e-3) {
+                        throw new RuntimeException("vertex " + k + " of the flattened cubic is off the curve");
+                    }
+                }
+            }
+            Flattener.tolerance = tolerance;
+
+            // huge curves are capped
+            Flattener.maxSegments = 8;
+            int capped = flattenCubic(new float[]{0, 0, 1e5f, 1e5f, -1e5f, 1e5f, 0, 0}).size / 2 - 1;
+            if (capped != 8) throw new RuntimeException("huge cubic flattened into " + capped + " segments, expected maxSegments 8");
+            Flattener.maxSegments = maxSegments;
+
+            // degenerate curves are one segment
+            float[][] straight = {{3, 4, 3, 4, 3, 4, 3, 4}, {0, 0, 1, 2, 2, 4, 3, 6}};
+            for (float[] c : straight) {
+                int segments = flattenCubic(c).size / 2 - 1;
+                if (segments != 1) throw new RuntimeException("straight cubic flattened into " + segments + " segments");
+            }
+            final int[] quadSegments = {0};
+            Flattener.quadTo(0, 0, 1, 2, 2, 4, (x, y) -> quadSegments[0]++);
+            if (quadSegments[0] != 1) throw new RuntimeException("straight quadratic flattened into " + quadSegments[0] + " segments");
+        } finally {
+            Flattener.tolerance = tolerance;
+            Flattener.maxSegments = maxSegments;
+        }
+    }
+
+    /**
+     * @return the start point of the cubic c, then every point Flattener gives
+     */
+    static FloatArray flattenCubic(float[] c) {
+        final FloatArray points = new FloatArray();
+        points.add(c[0], c[1]);
+        Flattener.cubicTo(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], (x, y) -> points.add(x, y));
+        return points;
+    }
+
+    static double[] cubicAt(float[] c, double t) {
+        double u = 1 - t, a = u * u * u, b = 3 * u * u * t, d = 3 * u * t * t, e = t * t * t;
+        return new double[]{a * c[0] + b * c[2] + d * c[4] + e * c[6], a * c[1] + b * c[3] + d * c[5] + e * c[7]};
+    }
+
+    static double segmentDistance(double px, double py, double x0, double y0, double x1, double y1) {
+        double dx = x1 - x0, dy = y1 - y0, lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, ((px - x0) * dx + (py - y0) * dy) / lengthSquared));
+        return Math.hypot(x0 + t * dx - px, y0 + t * dy - py);
+    }
+
+    static void expectPath(String d, String verbs, float... coords) {
+        expectShape("Path \"" + d + "\" parsed", SvgPath.parse(d), verbs, coords);
+    }
+
+    static void expectShape(String what, SvgPath path, String verbs, float... coords) {
+        boolean same = path.getVerbCount() == verbs.length() && path.getCoordCount() == coords.length;
+        for (int i = 0; same && i < verbs.length(); i++) same = path.getVerb(i) == verbs.charAt(i);
+        for (int i = 0; same && i < coords.length; i++) same = Math.abs(path.getCoord(i) - coords[i]) < 1e-3f;
+        if (!same) throw new RuntimeException(what + " into " + describe(path));
+    }
+
+    static void expectPathEnd(String d, float x, float y) {
+        SvgPath path = SvgPath.parse(d);
+        int count = path.getCoordCount();
+        if (Math.abs(path.getCoord(count - 2) - x) > 1e-3f || Math.abs(path.getCoord(count - 1) - y) > 1e-3f) {
+            throw new RuntimeException("Path \"" + d + "\" parsed into " + describe(path) + ", expected to end at " + x + ", " + y);
+        }
+    }
+
+    static void expectPathError(String d, String message) {
+        try {
+            SvgPath.parse(d);
+        } catch (IllegalArgumentException e) {
+            if (!message.equals(e.getMessage())) {
+                throw new RuntimeException("Path \"" + d + "\" failed with \"" + e.getMessage() + "\", expected \"" + message + "\"");
+            }
+            return;
+        }
+        throw new RuntimeException("Path \"" + d + "\" did not fail");
+    }
+
+    static String describe(SvgPath path) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < path.getVerbCount(); i++) builder.append((char) path.getVerb(i));
+        for (int i = 0; i < path.getCoordCount(); i++) builder.append(' ').append(path.getCoord(i));
+        return builder.toString();
+    }
+
+    public static void testStreamReader() throws ReflectionException {
+        String svg = "<?xml version=\"1.0\"?>\n<!DOCTYPE svg [ <!ENTITY e \"<rect/>\"> ]>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 16 16\" fill=\"#f00\" stroke=\"none\" stroke-width=\"1\">"
+                + "<!-- <rect x=\"0\" y=\"0\" width=\"16\" height=\"16\"/> --->"
+                // skipped with their children
+                + "<defs><rect width=\"16\" height=\"16\"/><g><circle cx=\"8\" cy=\"8\" r=\"8\"/></g></defs>"
+                + "<style><![CDATA[ g > rect { fill: #fff } ]]]></style>"
+                // empty elements
+                + "<g/><g></g><g fill=\"#fff\"/>"
+                // nested groups, the last rect has the style of the outer group only
+                + "<g fill=\"#0f0\"><g transform=\"translate(4 0)\" fill=\"#00f\"><rect x=\"0\" y=\"0\" width=\"4\" height=\"4\"/></g>"
+                + "<rect x='0' y='8' width='4' height='4'></rect></g>\n"
+                + "<rect x=\"12\" y=\"12\" width=\"4\" height=\"4\" />"
+                + "</svg>";
+        SvgDocument document = SvgDocument.parse(trickle(svg));
+        if (document.getShapeCount() != 3) throw new RuntimeException("streamed document has " + document.getShapeCount() + " shapes, expected 3");
+        Pixmap pixmap = Svg2Pixmap.svg2Pixmap(document, 16, 16);
+        int[][] expected = {{1, 1, 0}, {5, 1, 0x0000ffff}, {1, 9, 0x00ff00ff}, {13, 13, 0xff0000ff}, {8, 8, 0}};
+        for (int[] e : expected) {
+            if (pixmap.getPixel(e[0], e[1]) != e[2]) {
+                throw new RuntimeException("streamed document at (" + e[0] + ", " + e[1] + "): " + Integer.toHexString(pixmap.getPixel(e[0], e[1]))
+                        + ", expected " + Integer.toHexString(e[2]));
+            }
+        }
+        pixmap.dispose();
+
+        expectStreamError("<svg viewBox=\"0 0 1 1\">\n<g>\n", "unclosed element: g");
+        expectStreamError("<svg viewBox=\"0 0 1 1\">\n<rect x=1/></svg>", "on line 2, expect a quoted value of attribute x");
+        expectStreamError("<svg viewBox=\"0 0 1 1\"><rect x", "on line 1, unexpected end of file");
+        expectStreamError("<svg viewBox=\"0 0 1 1\"></svg></svg>", "on line 1, end tag without start tag");
+        invokeNative("StreamFile", "parseBrokenFiles");
+    }
+
+    /**
+     * Record every callback of a render, with the counts of stages, in the order they are called.
+     */
+    public static void testRenderListener() {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 16 16\" fill=\"#f00\" stroke=\"none\" stroke-width=\"1\">"
+                + "<rect x=\"2\" y=\"2\" width=\"12\" height=\"12\"/>"
+                + "<text x=\"0\" y=\"8\">unsupported</text>"
+                + "<circle cx=\"broken\" cy=\"8\" r=\"4\"/>"
+                + "</svg>";
+        final Array<String> events = new Array<>();
+        Svg2Pixmap.IRenderListener listener = new Svg2Pixmap.IRenderListener() {
+            @Override
+            public void onStage(Stage stage, long nanos, long count) {
+                if (nanos < 0) throw new RuntimeException("negative time of stage " + stage + ": " + nanos);
+                events.add(stage + " " + count);
+            }
+
+            @Override
+            public void onAllocated(long bytes) {
+                events.add("allocated " + bytes);
+            }
+
+            @Override
+            public void onElementSkipped(XmlReader.Element element) {
+                events.add("skipped " + element.getName());
+            }
+
+            @Override
+            public void onElementFailed(XmlReader.Element element, Throwable error) {
+                events.add("failed " + element.getName());
+            }
+        };
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        Svg2Pixmap.IRenderListener renderListener = Svg2Pixmap.renderListener;
+        try {
+            Svg2Pixmap.antiAliasing = Svg2Pixmap.AntiAliasing.COVERAGE;
+            Svg2Pixmap.renderListener = listener;
+            // 2 vertical edges of the rect, horizontal ones are dropped; only one shape is compiled
+            Svg2Pixmap.svg2Pixmap(svg, 16, 16).dispose();
+            expectEvents(events, "tree", "PARSE " + svg.length(), "skipped text", "failed circle", "COMPILE 1",
+                    "allocated 1024", "FLATTEN 2", "FILL 2", "RENDER 256");
+            // drawn as soon as read, reading and compiling are reported at the end
+            Svg2Pixmap.svg2PixmapDirectDraw(trickle(svg), 16, 16).dispose();
+            expectEvents(events, "streamed", "allocated 1024", "FLATTEN 2", "FILL 2", "skipped text", "failed circle",
+                    "PARSE " + svg.length(), "COMPILE 1");
+        } finally {
+            Svg2Pixmap.antiAliasing = antiAliasing;
+            Svg2Pixmap.renderListener = renderListener;
+        }
+    }
+
+    static void expectEvents(Array<String> events, String what, String... expected) {
+        if (!events.equals(new Array<>(expected))) {
+            throw new RuntimeException("callbacks of " + what + " render: " + events + ", expected " + new Array<>(expected));
+        }
+        events.clear();
+    }
+
+    /**
+     * Draw shapes with transforms onto 32 x 32 pixels, one unit a pixel, and check pixels where they should land and where
+     * they would land if the transform were applied wrong, e.g. in reverse order or with m01 and m10 swapped.
+     */
+    public static void testTransform() {
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        Svg2Pixmap.IRenderListener renderListener = Svg2Pixmap.renderListener;
+        try {
+            for (Svg2Pixmap.AntiAliasing mode : Svg2Pixmap.AntiAliasing.values()) {
+                Svg2Pixmap.antiAliasing = mode;
+                String square = "<rect x=\"0\" y=\"0\" width=\"4\" height=\"4\" transform=\"%s\"/>";
+                // [10, 18] x [5, 17]
+                checkTransform(square, "matrix(2 0 0 3 10 5)", new int[][]{{17, 16, 255}, {10, 5, 255}, {19, 16, 0}, {17, 18, 0}});
+                // (x, y) to (16 - y, x): [4, 6] x [2, 6], off the Pixmap if b and c were swapped
+                checkTransform("<rect x=\"2\" y=\"10\" width=\"4\" height=\"2\" transform=\"%s\"/>", "matrix(0 1 -1 0 16 0)",
+                        new int[][]{{5, 4, 255}, {3, 11, 0}});
+                checkTransform(square, "scale(2)", new int[][]{{7, 7, 255}, {9, 1, 0}});
+                checkTransform(square, "scale(2 3)", new int[][]{{7, 11, 255}, {7, 13, 0}, {9, 11, 0}});
+                // (1, 0) turns to (0, 1): [8, 12] x [2, 6]
+                checkTransform("<rect x=\"2\" y=\"-12\" width=\"4\" height=\"4\" transform=\"%s\"/>", "rotate(90)",
+                        new int[][]{{10, 4, 255}, {4, 10, 0}});
+                // around (16, 16): [14, 18] x [20, 28]
+                String offCenter = "<rect x=\"20\" y=\"14\" width=\"8\" height=\"4\" transform=\"%s\"/>";
+                int[][] aroundCenter = {{16, 24, 255}, {24, 16, 0}, {16, 8, 0}};
+                checkTransform(offCenter, "rotate(90 16 16)", aroundCenter);
+                checkTransform(offCenter, "translate(16 16) rotate(90) translate(-16 -16)", aroundCenter);
+                // x + y at row 12 is [12, 16]
+                checkTransform("<rect x=\"0\" y=\"10\" width=\"4\" height=\"4\" transform=\"%s\"/>", "skewX(45)",
+                        new int[][]{{14, 12, 255}, {2, 12, 0}});
+                // y + x at column 12 is [12, 16]
+                checkTransform("<rect x=\"10\" y=\"0\" width=\"4\" height=\"4\" transform=\"%s\"/>", "skewY(45)",
+                        new int[][]{{12, 14, 255}, {12, 2, 0}});
+                // the last one is applied first: [10, 18] x [0, 8], not [20, 28] x [0, 8]
+                checkTransform(square, "translate(10 0) scale(2)", new int[][]{{17, 7, 255}, {21, 7, 0}});
+                checkTransform(square, "scale(2),translate(1,1)", new int[][]{{9, 9, 255}, {1, 1, 0}});
+                // a group applies its transform after the one of its children
+                checkTransform("<g transform=\"%s\"><rect x=\"0\" y=\"0\" width=\"4\" height=\"4\" transform=\"scale(2)\"/></g>",
+                        "translate(10 0)", new int[][]{{17, 7, 255}, {21, 7, 0}});
+            }
+
+            final Throwable[] error = new Throwable[1];
+            Svg2Pixmap.renderListener = new Svg2Pixmap.IRenderListener() {
+                @Override
+                public void onElementFailed(XmlReader.Element element, Throwable e) {
+                    error[0] = e;
+                }
+            };
+            String[][] broken = {
+                    {"scale(a)", "Expect a number at position 6 in transform \"scale(a)\""},
+                    {"scale 2", "Expect '(' at position 6 in transform \"scale 2\""},
+                    {"translate(1 2", "Expect ')' at the end of transform \"translate(1 2\""},
+                    {"skewX(1 2)", "Unknown transform skewX with 2 arguments in \"skewX(1 2)\""},
+            };
+            for (String[] b : broken) {
+                error[0] = null;
+                SvgDocument.parse("<svg viewBox=\"0 0 32 32\" stroke-width=\"1\"><rect x=\"0\" y=\"0\" width=\"4\" height=\"4\" transform=\""
+                        + b[0] + "\"/></svg>");
+                if (error[0] == null || !b[1].equals(error[0].getMessage())) {
+                    throw new RuntimeException("error of transform \"" + b[0] + "\": " + error[0] + ", expected " + b[1]);
+                }
+            }
+        } finally {
+            Svg2Pixmap.antiAliasing = antiAliasing;
+            Svg2Pixmap.renderListener = renderListener;
+        }
+    }
+
+    /**
+     * @param element an element of the document, with "%s" replaced by transform
+     * @param pixels  {x, y, alpha} to check
+     */
+    static void checkTransform(String element, String transform, int[][] pixels) {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 32 32\" fill=\"#000\" stroke=\"none\" stroke-width=\"1\">"
+                + element.replace("%s", transform) + "</svg>";
+        Pixmap pixmap = Svg2Pixmap.svg2Pixmap(svg, 32, 32);
+        for (int[] p : pixels) checkAlpha(pixmap, p[0], p[1], p[2], "transform \"" + transform + "\" in " + Svg2Pixmap.antiAliasing);
+        pixmap.dispose();
+    }
+
+    /**
+     * @return a Reader giving one char of s at a time, so that every token is split
+     */
+    static Reader trickle(final String s) {
+        return new Reader() {
+            int index = 0;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (index == s.length()) return -1;
+                if (length == 0) return 0;
+                buffer[offset] = s.charAt(index++);
+                return 1;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static void expectStreamError(String svg, String message) {
+        try {
+            SvgDocument.parse(trickle(svg));
+        } catch (SerializationException e) {
+            if (e.getMessage() == null || !e.getMessage().contains(message)) {
+                throw new RuntimeException("\"" + svg + "\" failed with \"" + e.getMessage() + "\", expected \"" + message + "\"");
+            }
+            return;
+        }
+        throw new RuntimeException("\"" + svg + "\" did not fail");
+    }
+
+    public static void testViewport() {
+        boolean thrown = false;
+        try {
+            SvgDocument.parse("<svg><rect x=\"0\" y=\"0\" width=\"1\" height=\"1\"/></svg>");
+        } catch (GdxRuntimeException e) {
+            thrown = true;
+        }
+        if (!thrown) throw new RuntimeException("a document without viewBox, width or height did not fail");
+        SvgDocument document = SvgDocument.parse("<svg width=\"20px\" height=\"10\"></svg>");
+        if (document.width != 20 || document.height != 10) throw new RuntimeException("size of document " + document.width + " x " + document.height);
+
+        // elements of two documents drawn one by one, each in its own viewport
+        XmlReader reader = new XmlReader();
+        String rect = "<rect x=\"0\" y=\"0\" width=\"8\" height=\"8\" fill=\"#000\" stroke=\"none\" stroke-width=\"1\"/>";
+        XmlReader.Element small = reader.parse("<svg viewBox=\"0 0 8 8\">" + rect + "</svg>").getChild(0),
+                large = reader.parse("<svg viewBox=\"0 0 16 16\">" + rect + "</svg>").getChild(0);
+        Pixmap pixmap = new Pixmap(16, 16, Pixmap.Format.RGBA8888);
+        for (XmlReader.Element element : new XmlReader.Element[]{small, large, small}) {
+            pixmap.setColor(0);
+            pixmap.fill();
+            Svg2Pixmap.rect(element, pixmap);
+            int expected = element == small ? 0x000000ff : 0;
+            if (pixmap.getPixel(12, 12) != expected) {
+                throw new RuntimeException("element of viewBox " + element.getParent().getAttribute("viewBox") + " drawn in another viewport");
+            }
+        }
+        pixmap.dispose();
+    }
+
+    public static void testReadPercentage() {
+        String[] values = {"50%", "12.5%", "100%", "3"};
+        double[] expected = {5, 1.25, 10, 3};
+        for (int i = 0; i < values.length; i++) {
+            double actual = H.svgReadDouble(values[i], 10);
+            if (actual != expected[i]) throw new RuntimeException("\"" + values[i] + "\" of 10 read as " + actual + ", expected " + expected[i]);
+        }
+    }
+
+    public static void testDistanceField() {
+        float spread = DistanceField.spread;
+        DistanceField.spread = 4;
+        try {
+            // a square of [8, 24], pixel centers are 0.5 from its outline next to it
+            SvgDocument square = SvgDocument.parse("<svg viewBox=\"0 0 32 32\" stroke=\"none\" stroke-width=\"1\">"
+                    + "<rect x=\"8\" y=\"8\" width=\"16\" height=\"16\"/></svg>");
+            Pixmap field = DistanceField.generate(square, 32, 32);
+            for (int y = 0; y < 32; y++) {
+                for (int x = 0; x < 32; x++) {
+                    float cx = x + 0.5f, cy = y + 0.5f;
+                    float dx = Math.max(8 - cx, cx - 24), dy = Math.max(8 - cy, cy - 24);
+                    double distance = dx < 0 && dy < 0 ? Math.max(dx, dy) : Math.hypot(Math.max(dx, 0), Math.max(dy, 0));
+                    double value = 0.5 - Math.max(-4, Math.min(4, distance)) / 8;
+                    int pixel = field.getPixel(x, y), expected = (int) Math.round(value * 255);
+                    if (pixel >>> 8 != 0xffffff || Math.abs((pixel & 0xff) - expected) > 1) {
+                        throw new RuntimeException("distance field at (" + x + ", " + y + "): " + Integer.toHexString(pixel)
+                                + ", expected alpha " + expected);
+                    }
+                }
+            }
+            // 0.5 on the outline, 1 and 0 beyond the spread
+            checkAlpha(field, 7, 16, 112, "just outside the outline");
+            checkAlpha(field, 8, 16, 143, "just inside the outline");
+            checkAlpha(field, 16, 16, 255, "beyond the spread inside");
+            checkAlpha(field, 2, 16, 0, "beyond the spread outside");
+
+            // into a region, leaving the rest alone
+            Pixmap pixmap = new Pixmap(40, 40, Pixmap.Format.RGBA8888);
+            pixmap.setColor(0xff0000ff);
+            pixmap.fill();
+            DistanceField.generate(square, pixmap, 4, 6, 32, 32);
+            for (int y = 0; y < 40; y++) {
+                for (int x = 0; x < 40; x++) {
+                    boolean inRegion = 4 <= x && x < 36 && 6 <= y && y < 38;
+                    int expected = inRegion ? field.getPixel(x - 4, y - 6) : 0xff0000ff;
+                    if (pixmap.getPixel(x, y) != expected) {
+                        throw new RuntimeException("distance field in a region at (" + x + ", " + y + "): "
+                                + Integer.toHexString(pixmap.getPixel(x, y)) + ", expected " + Integer.toHexString(expected));
+                    }
+                }
+            }
+            pixmap.dispose();
+            field.dispose();
+
+            // shapes are merged into one field: where two of them meet stays inside
+            SvgDocument halves = SvgDocument.parse("<svg viewBox=\"0 0 32 32\" stroke=\"none\" stroke-width=\"1\">"
+                    + "<rect x=\"8\" y=\"8\" width=\"8\" height=\"16\"/><rect x=\"16\" y=\"8\" width=\"8\" height=\"16\"/></svg>");
+            field = DistanceField.generate(halves, 32, 32);
+            for (int y = 8; y < 24; y++) {
+                if ((field.getPixel(15, y) & 0xff) < 128 || (field.getPixel(16, y) & 0xff) < 128) {
+                    throw new RuntimeException("distance field of two shapes is outside where they meet, at row " + y);
+                }
+            }
+            field.dispose();
+        } finally {
+            DistanceField.spread = spread;
+        }
+    }
+
+    static void checkAlpha(Pixmap pixmap, int x, int y, int alpha, String what) {
+        if ((pixmap.getPixel(x, y) & 0xff) != alpha) {
+            throw new RuntimeException("alpha " + what + " at (" + x + ", " + y + "): " + (pixmap.getPixel(x, y) & 0xff) + ", expected " + alpha);
+        }
+    }
+
+    public static void testAlphaMask() {
+        // translucent fills and strokes overlapping each other, partly covered pixels on curves
+        SvgDocument document = SvgDocument.parse("<svg viewBox=\"0 0 32 32\" stroke=\"#000\" stroke-width=\"1.5\">"
+                + "<circle cx=\"12\" cy=\"13\" r=\"9\" fill=\"#e04040\"/>"
+                + "<rect x=\"14.5\" y=\"6.25\" width=\"14\" height=\"16\" rx=\"3\" fill=\"#40a0e099\" stroke=\"#0000ff40\"/>"
+                + "<path d=\"M2 30 C10 14 22 34 30 20\" fill=\"none\" stroke=\"#30c060c0\" stroke-linecap=\"round\"/>"
+                + "</svg>");
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        Svg2Pixmap.antiAliasing = Svg2Pixmap.AntiAliasing.COVERAGE;
+        int minPixels = TileRenderer.minPixels;
+        try {
+            // small masks drawn shape by shape, then the same tiled
+            for (int tileAbove : new int[]{minPixels, 0}) {
+                TileRenderer.minPixels = tileAbove;
+                for (int[] size : new int[][]{{32, 32}, {75, 50}}) {
+                    Pixmap mask = AlphaMask.generate(document, size[0], size[1]);
+                    Pixmap rgba = Svg2Pixmap.svg2PixmapDirectDraw(document, size[0], size[1]);
+                    if (mask.getFormat() != Pixmap.Format.Alpha) throw new RuntimeException("mask is " + mask.getFormat());
+                    ByteBuffer pixels = mask.getPixels();
+                    for (int y = 0; y < size[1]; y++) {
+                        for (int x = 0; x < size[0]; x++) {
+                            int expected = rgba.getPixel(x, y) & 0xff, actual = pixels.get(y * size[0] + x) & 0xff;
+                            if (actual != expected) {
+                                throw new RuntimeException("mask of " + size[0] + " x " + size[1] + " tiled above " + tileAbove + " pixels at ("
+                                        + x + ", " + y + "): " + actual + ", but alpha of the RGBA8888 render is " + expected);
+                            }
+                        }
+                    }
+                    mask.dispose();
+                    rgba.dispose();
+                }
+            }
+        } finally {
+            Svg2Pixmap.antiAliasing = antiAliasing;
+            TileRenderer.minPixels = minPixels;
+        }
+    }
+
     public static void testSvg2Pixmap() {
         FileHandle directory = Gdx.files.internal("bytesize-icons/dist/icons");
         String[] prefixes = {"", "assets/", "../assets/", "test-libgdx/assets/"};
@@ -161,7 +1212,7 @@ public class TestCore extends ApplicationAdapter {
             throw new RuntimeException("No test file found in " + directory.path());
         }
         results1 = new Pixmap[svgFiles.length];
-        AtomicInteger count = new AtomicInteger(0);
+        Array<AsyncResult<Void>> tasks = new Array<>(svgFiles.length);
         for (int i = 0; i < svgFiles.length; i++) {
             int j = i;
 
@@ -170,29 +1221,38 @@ public class TestCore extends ApplicationAdapter {
                 Svg2Pixmap.svg2PixmapJSNI(svgFiles[j].readString(), (int) (width * outputScale), (int) (height * outputScale), pixmap -> {
                     results1[j] = pixmap;
                     Gdx.app.debug("testSvg2Pixmap", svgFiles[j].name() + " " + (TimeUtils.millis() - time) + "ms");
-                    count.incrementAndGet();
                 });
             } else {
-                asyncExecutor.submit(() -> {
+                tasks.add(asyncExecutor.submit(() -> {
                     long time = TimeUtils.millis();
                     results1[j] = Svg2Pixmap.svg2Pixmap(svgFiles[j].readString(), (int) (width * outputScale), (int) (height * outputScale));
                     Gdx.app.debug("testSvg2Pixmap", svgFiles[j].name() + " " + (TimeUtils.millis() - time) + "ms");
-                    count.incrementAndGet();
                     return null;
-                });
+                }));
             }
 
         }
-        if (!Gdx.app.getType().equals(Application.ApplicationType.WebGL)) {
-            while (count.get() < svgFiles.length) {
-                ThreadUtils.yield();
-            }
+        for (AsyncResult<Void> task : tasks) {
+            task.get();
         }
     }
 
     public void testStandardComparison() throws ReflectionException {
+        invokeNative("Comparison", "compareToStandardResults");
+    }
+
+    public static void testParallelDeterminism() throws ReflectionException {
+        invokeNative("Determinism", "compareToSynchronous");
+        invokeNative("Determinism", "renderOnSharedPool");
+        invokeNative("AsyncTimeout", "waitWithTimeout");
+    }
+
+    /**
+     * Call a test in the native module, which needs things GWT does not have, such as threads.
+     */
+    public static void invokeNative(String className, String methodName) throws ReflectionException {
         try {
-            ClassReflection.getMethod(ClassReflection.forName("io.github.fxzjshm.gdx.svg2pixmap.test.Comparison"), "compareToStandardResults")
+            ClassReflection.getMethod(ClassReflection.forName("io.github.fxzjshm.gdx.svg2pixmap.test." + className), methodName)
                     .invoke(null);
         } catch (ReflectionException exception) {
             // this class does not exist in GWT mode, no need to care about exceptions
@@ -0,0 +1,45 @@
+package io.github.fxzjshm.gdx.svg2pixmap.test;
+
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.async.AsyncExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.github.fxzjshm.gdx.svg2pixmap.Parallel;
+
+/**
+ * Futures of {@link Parallel.AsyncExecutorAdapter} must wait with a timeout. Needs a task blocked on another thread, so not in GWT mode.
+ */
+@SuppressWarnings("unused")
+public class AsyncTimeout {
+    public static void waitWithTimeout() throws Exception {
+        AsyncExecutor asyncExecutor = new AsyncExecutor(1);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            Future<?> future = new Parallel.AsyncExecutorAdapter(asyncExecutor).submit(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    throw new GdxRuntimeException(e);
+                }
+            });
+            boolean timedOut = false;
+            long start = System.nanoTime();
+            try {
+                future.get(50, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                timedOut = true;
+            }
+            if (!timedOut) throw new GdxRuntimeException("Waiting for a blocked task did not time out");
+            if (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50)) throw new GdxRuntimeException("Timed out too early");
+            latch.countDown();
+            future.get(30, TimeUnit.SECONDS);
+            if (!future.isDone()) throw new GdxRuntimeException("Task not done after waiting for it");
+        } finally {
+            asyncExecutor.dispose();
+        }
+    }
+}
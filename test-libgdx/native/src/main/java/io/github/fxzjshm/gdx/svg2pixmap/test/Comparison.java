@@ -4,8 +4,9 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.GdxRuntimeException;
-import com.badlogic.gdx.utils.async.ThreadUtils;
+import com.badlogic.gdx.utils.async.AsyncResult;
 
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderInput;
@@ -14,7 +15,6 @@ import org.apache.batik.transcoder.image.PNGTranscoder;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import static io.github.fxzjshm.gdx.svg2pixmap.test.TestCore.*;
 
@@ -31,17 +31,16 @@ public class Comparison {
         }
         results2 = new Pixmap[svgFiles.length];
 
-        AtomicInteger count = new AtomicInteger(0);
+        Array<AsyncResult<Void>> tasks = new Array<>(svgFiles.length);
         for (int i = 0; i < svgFiles.length; i++) {
             int j = i;
-            asyncExecutor.submit(() -> {
+            tasks.add(asyncExecutor.submit(() -> {
                 results2[j] = standardConvert(svgFiles[j]);
-                count.incrementAndGet();
                 return null;
-            });
+            }));
         }
-        while (count.get() < svgFiles.length) {
-            ThreadUtils.yield();
+        for (AsyncResult<Void> task : tasks) {
+            task.get();
         }
 
         ICompareMethod compareMethod = new CompareMethod_SquareDistance();
@@ -0,0 +1,116 @@
+package io.github.fxzjshm.gdx.svg2pixmap.test;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import io.github.fxzjshm.gdx.svg2pixmap.Parallel;
+import io.github.fxzjshm.gdx.svg2pixmap.SvgDocument;
+import io.github.fxzjshm.gdx.svg2pixmap.Svg2Pixmap;
+import io.github.fxzjshm.gdx.svg2pixmap.TileRenderer;
+
+/**
+ * Parallel rendering must give exactly the same pixels as rendering on one thread. Needs real threads, so not in GWT mode.
+ */
+@SuppressWarnings("unused")
+public class Determinism {
+    public static final String SVG = "<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 64 64\" stroke=\"#000\" stroke-width=\"2\">"
+            + "<circle cx=\"20\" cy=\"22\" r=\"14\" fill=\"#e04040\"/>"
+            + "<rect x=\"30.5\" y=\"8.25\" width=\"26\" height=\"30\" rx=\"4\" fill=\"#40a0e099\"/>"
+            + "<path d=\"M4 60 C20 30 44 70 60 40 L60 60 Z M12 56 L52 56 L32 44 Z\" fill=\"#30c060\" fill-rule=\"evenodd\"/>"
+            + "<polyline points=\"6 6 58 58 6 58 58 6\" fill=\"none\" stroke-linejoin=\"round\" stroke-linecap=\"round\"/>"
+            + "</svg>";
+
+    public static void compareToSynchronous() {
+        Parallel.IExecutor executor = Parallel.executor;
+        int parallelism = Parallel.parallelism, minPixels = TileRenderer.minPixels;
+        Svg2Pixmap.AntiAliasing antiAliasing = Svg2Pixmap.antiAliasing;
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            SvgDocument document = SvgDocument.parse(SVG);
+            TileRenderer.minPixels = 0; // tile even small renders
+            for (Svg2Pixmap.AntiAliasing mode : Svg2Pixmap.AntiAliasing.values()) {
+                Svg2Pixmap.antiAliasing = mode;
+                for (int size : new int[]{64, 257, 512}) {
+                    Parallel.executor = Parallel.SYNCHRONOUS;
+                    Pixmap expected = Svg2Pixmap.svg2Pixmap(document, size, size);
+                    Parallel.executor = pool::submit;
+                    Parallel.parallelism = 4;
+                    Pixmap actual = Svg2Pixmap.svg2Pixmap(document, size, size);
+                    int differences = countDifferences(expected, actual);
+                    Gdx.app.debug("compareToSynchronous", mode + " " + size + ": " + differences + " bytes differ");
+                    if (differences != 0) {
+                        throw new GdxRuntimeException("Parallel rendering differs from synchronous one in " + mode + " at size " + size);
+                    }
+                    expected.dispose();
+                    actual.dispose();
+                }
+            }
+        } finally {
+            Parallel.executor = executor;
+            Parallel.parallelism = parallelism;
+            TileRenderer.minPixels = minPixels;
+            Svg2Pixmap.antiAliasing = antiAliasing;
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Renders running on the same pool as their bands, more of them than threads, must neither wait for each other forever
+     * nor draw anything different.
+     */
+    public static void renderOnSharedPool() throws Exception {
+        Parallel.IExecutor executor = Parallel.executor;
+        int parallelism = Parallel.parallelism, minPixels = TileRenderer.minPixels;
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final SvgDocument document = SvgDocument.parse(SVG);
+            TileRenderer.minPixels = 0;
+            Parallel.executor = Parallel.SYNCHRONOUS;
+            Pixmap expected = Svg2Pixmap.svg2Pixmap(document, 256, 256);
+            Parallel.executor = pool::submit;
+            Parallel.parallelism = 2;
+            List<Future<Pixmap>> renders = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                renders.add(pool.submit(() -> Svg2Pixmap.svg2Pixmap(document, 256, 256)));
+            }
+            for (Future<Pixmap> render : renders) {
+                Pixmap actual;
+                try {
+                    actual = render.get(30, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    throw new GdxRuntimeException("Renders sharing the pool of their bands are stuck", e);
+                }
+                if (countDifferences(expected, actual) != 0) {
+                    throw new GdxRuntimeException("Render on a shared pool differs from synchronous one");
+                }
+                actual.dispose();
+            }
+            expected.dispose();
+        } finally {
+            Parallel.executor = executor;
+            Parallel.parallelism = parallelism;
+            TileRenderer.minPixels = minPixels;
+            pool.shutdownNow();
+        }
+    }
+
+    public static int countDifferences(Pixmap p1, Pixmap p2) {
+        ByteBuffer b1 = p1.getPixels(), b2 = p2.getPixels();
+        if (b1.capacity() != b2.capacity()) throw new IllegalArgumentException("The two Pixmaps must be the same size!");
+        int differences = 0;
+        for (int i = 0; i < b1.capacity(); i++) {
+            if (b1.get(i) != b2.get(i)) differences++;
+        }
+        return differences;
+    }
+}
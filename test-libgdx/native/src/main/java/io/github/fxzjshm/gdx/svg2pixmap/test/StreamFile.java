@@ -0,0 +1,41 @@
+package io.github.fxzjshm.gdx.svg2pixmap.test;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.SerializationException;
+
+import io.github.fxzjshm.gdx.svg2pixmap.SvgDocument;
+
+/**
+ * Errors of {@link SvgDocument#parse(FileHandle)}. Needs a file written at run time, so not in GWT mode.
+ */
+@SuppressWarnings("unused")
+public class StreamFile {
+    public static void parseBrokenFiles() {
+        FileHandle file = FileHandle.tempFile("broken");
+        try {
+            file.writeString("<svg viewBox=\"0 0 1 1\">\n<rect x=1/></svg>", false, "UTF-8");
+            try {
+                SvgDocument.parse(file);
+                throw new GdxRuntimeException("Broken file parsed");
+            } catch (SerializationException e) {
+                // thrown as it is, not wrapped in another SerializationException
+                if (e.getCause() != null || !e.getMessage().contains("on line 2, expect a quoted value of attribute x")) {
+                    throw new GdxRuntimeException("Unexpected error of a broken file", e);
+                }
+            }
+
+            FileHandle missing = file.sibling(file.name() + ".missing");
+            try {
+                SvgDocument.parse(missing);
+                throw new GdxRuntimeException("Missing file parsed");
+            } catch (SerializationException e) {
+                if (!(e.getCause() instanceof GdxRuntimeException) || !e.getMessage().contains(missing.toString())) {
+                    throw new GdxRuntimeException("Unexpected error of a missing file", e);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}